@@ -0,0 +1,114 @@
+package com.reactiveworks.stocktrade.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Compares load test results against a stored baseline. Latency metrics
+ * ({@code *.ms}) regress when they grow beyond the tolerance, throughput
+ * regresses when it drops below it. Metrics missing from the baseline are not
+ * checked. The error rate of every operation is checked against a fixed limit
+ * instead, independent of the baseline.
+ */
+public class BaselineComparator {
+
+	private static final String COUNT = ".count";
+	private static final String ERRORS = ".errors";
+
+	private final double tolerance;
+	private final double maxErrorRate;
+
+	/**
+	 * @param tolerance    allowed relative deviation, e.g. 0.2 for 20%.
+	 * @param maxErrorRate allowed share of failed requests per operation, e.g.
+	 *                     0.01 for 1%.
+	 */
+	public BaselineComparator(double tolerance, double maxErrorRate) {
+		this.tolerance = tolerance;
+		this.maxErrorRate = maxErrorRate;
+	}
+
+	/**
+	 * counts the latency and throughput metrics of the baseline, the ones
+	 * {@link #findRegressions(Properties, Properties)} checks.
+	 * 
+	 * @param baseline the stored baseline.
+	 * @return number of checked metrics, 0 when no baseline was recorded yet.
+	 */
+	public int countCheckedMetrics(Properties baseline) {
+		int count = 0;
+		for (String metric : baseline.stringPropertyNames()) {
+			if (isLatency(metric) || isThroughput(metric)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * returns a description of every regressed metric.
+	 * 
+	 * @param baseline the stored baseline.
+	 * @param results  the results of the current run.
+	 * @return the regressions, empty when there are none.
+	 */
+	public List<String> findRegressions(Properties baseline, Properties results) {
+		List<String> regressions = new ArrayList<>();
+		for (String metric : baseline.stringPropertyNames()) {
+			boolean latency = isLatency(metric);
+			boolean throughput = isThroughput(metric);
+			if (!latency && !throughput) {
+				continue;
+			}
+			double expected = Double.parseDouble(baseline.getProperty(metric));
+			String measuredValue = results.getProperty(metric);
+			if (measuredValue == null) {
+				regressions.add(metric + " was not measured, baseline is " + expected);
+				continue;
+			}
+			double measured = Double.parseDouble(measuredValue);
+			if (latency && measured > expected * (1 + tolerance)) {
+				regressions.add(metric + " is " + measured + ", baseline is " + expected);
+			} else if (throughput && measured < expected * (1 - tolerance)) {
+				regressions.add(metric + " is " + measured + ", baseline is " + expected);
+			}
+		}
+		return regressions;
+	}
+
+	/**
+	 * returns a description of every operation whose requests failed more often
+	 * than allowed.
+	 * 
+	 * @param results the results of the current run.
+	 * @return the operations with too many errors, empty when there are none.
+	 */
+	public List<String> findExcessiveErrorRates(Properties results) {
+		List<String> violations = new ArrayList<>();
+		for (String metric : results.stringPropertyNames()) {
+			if (!metric.endsWith(ERRORS)) {
+				continue;
+			}
+			String operation = metric.substring(0, metric.length() - ERRORS.length());
+			long errors = Long.parseLong(results.getProperty(metric));
+			long total = errors + Long.parseLong(results.getProperty(operation + COUNT, "0"));
+			if (errors > 0 && errors > maxErrorRate * total) {
+				violations.add(operation + " failed " + errors + " of " + total + " times, "
+						+ String.format(Locale.ROOT, "%.2f%%", 100.0 * errors / total) + " is above the allowed "
+						+ String.format(Locale.ROOT, "%.2f%%", 100 * maxErrorRate));
+			}
+		}
+		return violations;
+	}
+
+	private static boolean isLatency(String metric) {
+		return metric.endsWith(".ms") && !metric.endsWith(".max.ms");
+	}
+
+	private static boolean isThroughput(String metric) {
+		return metric.endsWith(".throughput");
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.reactiveworks.stocktrade.loadtest;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Records the latency of every operation in an HdrHistogram together with its
+ * error count. Latencies are kept in microseconds and reported in
+ * milliseconds.
+ */
+public class LatencyRecorder {
+
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+	private static final int SIGNIFICANT_DIGITS = 3;
+	private static final double MICROS_PER_MILLI = 1000.0;
+
+	private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+	private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+	private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+	private volatile long startNanos = System.nanoTime();
+	private long elapsedNanos;
+
+	public LatencyRecorder() {
+		for (Operation operation : Operation.values()) {
+			recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+			errors.put(operation, new AtomicLong());
+		}
+	}
+
+	public void recordSuccess(Operation operation, long latencyNanos) {
+		long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS);
+		recorders.get(operation).recordValue(micros);
+	}
+
+	public void recordError(Operation operation) {
+		errors.get(operation).incrementAndGet();
+	}
+
+	/**
+	 * discards everything recorded so far, e.g. at the end of the warm-up.
+	 */
+	public void reset() {
+		for (Operation operation : Operation.values()) {
+			recorders.get(operation).getIntervalHistogram();
+			errors.get(operation).set(0);
+		}
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * ends the measurement and freezes the histograms.
+	 */
+	public void stop() {
+		elapsedNanos = System.nanoTime() - startNanos;
+		for (Operation operation : Operation.values()) {
+			histograms.put(operation, recorders.get(operation).getIntervalHistogram());
+		}
+	}
+
+	/**
+	 * returns the results of the stopped measurement in the same format as the
+	 * stored baseline: {@code OPERATION.metric=value}.
+	 * 
+	 * @return the results of every operation that was executed.
+	 */
+	public Properties results() {
+		Properties results = new Properties();
+		double seconds = elapsedNanos / 1e9;
+		for (Operation operation : Operation.values()) {
+			Histogram histogram = histograms.get(operation);
+			if (histogram.getTotalCount() == 0 && errors.get(operation).get() == 0) {
+				continue;
+			}
+			String prefix = operation.name() + ".";
+			results.setProperty(prefix + "count", Long.toString(histogram.getTotalCount()));
+			results.setProperty(prefix + "errors", Long.toString(errors.get(operation).get()));
+			results.setProperty(prefix + "throughput", format(histogram.getTotalCount() / seconds));
+			results.setProperty(prefix + "p50.ms", millis(histogram, 50));
+			results.setProperty(prefix + "p90.ms", millis(histogram, 90));
+			results.setProperty(prefix + "p99.ms", millis(histogram, 99));
+			results.setProperty(prefix + "p99.9.ms", millis(histogram, 99.9));
+			results.setProperty(prefix + "max.ms", format(histogram.getMaxValue() / MICROS_PER_MILLI));
+		}
+		return results;
+	}
+
+	/**
+	 * prints a summary table of the stopped measurement.
+	 * 
+	 * @param out the stream to print to.
+	 */
+	public void printSummary(PrintStream out) {
+		Properties results = results();
+		out.println(String.format("%-10s %10s %8s %10s %9s %9s %9s %9s %9s", "operation", "count", "errors",
+				"ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+		for (Operation operation : Operation.values()) {
+			String prefix = operation.name() + ".";
+			if (results.getProperty(prefix + "count") == null) {
+				continue;
+			}
+			out.println(String.format("%-10s %10s %8s %10s %9s %9s %9s %9s %9s", operation,
+					results.getProperty(prefix + "count"), results.getProperty(prefix + "errors"),
+					results.getProperty(prefix + "throughput"), results.getProperty(prefix + "p50.ms"),
+					results.getProperty(prefix + "p90.ms"), results.getProperty(prefix + "p99.ms"),
+					results.getProperty(prefix + "p99.9.ms"), results.getProperty(prefix + "max.ms")));
+		}
+	}
+
+	/**
+	 * writes the full percentile distribution of every operation as
+	 * {@code OPERATION.hgrm} files, which HdrHistogram's plotter can read.
+	 * 
+	 * @param directory the directory to write to.
+	 * @throws FileNotFoundException when a file can't be created.
+	 */
+	public void writeDistributions(File directory) throws FileNotFoundException {
+		for (Operation operation : Operation.values()) {
+			Histogram histogram = histograms.get(operation);
+			if (histogram.getTotalCount() == 0) {
+				continue;
+			}
+			try (PrintStream out = new PrintStream(new File(directory, operation.name() + ".hgrm"))) {
+				histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+			}
+		}
+	}
+
+	private static String millis(Histogram histogram, double percentile) {
+		return format(histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI);
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+
+}
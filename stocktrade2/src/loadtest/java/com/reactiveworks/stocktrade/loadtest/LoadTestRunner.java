@@ -0,0 +1,255 @@
+package com.reactiveworks.stocktrade.loadtest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.RestClientException;
+
+import com.reactiveworks.stocktrade.StocktradeApplication;
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+/**
+ * Runs a scripted mix of /stocktrades calls against the application backed by
+ * an embedded mongod, reports latency percentiles and throughput per operation
+ * and fails when they regress against the stored baseline or too many requests
+ * fail.
+ * <p>
+ * Requests are issued at a fixed rate rather than back to back, and every
+ * latency is measured from the time the request was scheduled to start. A
+ * stalled server therefore shows up in the percentiles with the time the
+ * queued requests waited, instead of simply delaying the next request.
+ *
+ * <pre>
+ * mvn -B -Ploadtest verify -Dloadtest.durationSeconds=120 -Dloadtest.rate=600 -Dloadtest.mix=GET=80,PATCH=20
+ * </pre>
+ *
+ * See {@link LoadTestSettings} for the available {@code loadtest.*} properties.
+ */
+public class LoadTestRunner {
+	private static final Logger LOGGER_OBJ = LoggerFactory.getLogger(LoadTestRunner.class);
+	private static final int SEED_BATCH_SIZE = 500;
+	private static final int LIST_PAGES = 3;
+
+	private final LoadTestSettings settings;
+	private final List<StockTradeWorkloadGenerator> generators = new ArrayList<>();
+	private final StockTradeApiClient client;
+	private final LatencyRecorder recorder = new LatencyRecorder();
+	private final Operation[] operations = Operation.values();
+	private final int[] cumulativeWeights = new int[operations.length];
+
+	public LoadTestRunner(LoadTestSettings settings, String baseUrl) {
+		this.settings = settings;
+		for (int worker = 0; worker < settings.getThreads(); worker++) {
+			generators.add(new StockTradeWorkloadGenerator(settings.getSecurities(), settings.getRandomSeed(), worker,
+					settings.getThreads()));
+		}
+		this.client = new StockTradeApiClient(baseUrl, settings.getThreads());
+		Map<Operation, Integer> weights = Operation.parseMix(settings.getMix());
+		int total = 0;
+		for (int i = 0; i < operations.length; i++) {
+			total += weights.get(operations[i]);
+			cumulativeWeights[i] = total;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadTestSettings settings = new LoadTestSettings();
+		LOGGER_OBJ.info("starting load test with " + settings);
+		ConfigurableApplicationContext context = SpringApplication.run(StocktradeApplication.class,
+				"--server.port=0", "--spring.data.mongodb.port=0",
+				"--spring.mongodb.embedded.version=" + settings.getMongoVersion(),
+				"--logging.level.org.springframework.web.servlet.mvc.method.annotation=WARN");
+		try {
+			String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+					+ "/stocktrades";
+			new LoadTestRunner(settings, baseUrl).run();
+		} finally {
+			context.close();
+		}
+	}
+
+	/**
+	 * seeds the collection, runs the warm-up and the measurement and checks the
+	 * results against the baseline.
+	 *
+	 * @throws IOException          when the report or baseline can't be
+	 *                              read/written.
+	 * @throws InterruptedException when interrupted while waiting for the
+	 *                              workers.
+	 */
+	public void run() throws IOException, InterruptedException {
+		seed();
+		ExecutorService workers = Executors.newFixedThreadPool(settings.getThreads());
+		long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(settings.getThreads()) / settings.getRate());
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos(settings.getWarmupSeconds() + settings.getDurationSeconds());
+		for (int i = 0; i < settings.getThreads(); i++) {
+			StockTradeWorkloadGenerator generator = generators.get(i);
+			long firstStart = start + intervalNanos * i / settings.getThreads();
+			workers.execute(() -> runWorker(generator, firstStart, intervalNanos, end));
+		}
+		TimeUnit.SECONDS.sleep(settings.getWarmupSeconds());
+		recorder.reset();
+		workers.shutdown();
+		workers.awaitTermination(settings.getDurationSeconds() + 60L, TimeUnit.SECONDS);
+		recorder.stop();
+		report();
+	}
+
+	/**
+	 * issues the requests of one worker on its fixed schedule until the end of
+	 * the run. A worker that falls behind issues the overdue requests back to
+	 * back, their latency includes the time they were overdue.
+	 */
+	private void runWorker(StockTradeWorkloadGenerator generator, long firstStart, long intervalNanos, long end) {
+		for (long scheduled = firstStart; scheduled < end && System.nanoTime() < end; scheduled += intervalNanos) {
+			long wait;
+			while ((wait = scheduled - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			execute(generator, nextOperation(generator), scheduled);
+		}
+	}
+
+	private void seed() {
+		LOGGER_OBJ.info("seeding " + settings.getSeedRecords() + " stocktrade records");
+		int perWorker = (settings.getSeedRecords() + generators.size() - 1) / generators.size();
+		for (StockTradeWorkloadGenerator generator : generators) {
+			for (int seeded = 0; seeded < perWorker; seeded += SEED_BATCH_SIZE) {
+				List<StockTrade> stockTrades = generator.newTrades(Math.min(SEED_BATCH_SIZE, perWorker - seeded));
+				client.postBulk(stockTrades);
+				generator.markCreated(stockTrades);
+			}
+		}
+	}
+
+	private Operation nextOperation(StockTradeWorkloadGenerator generator) {
+		int pick = generator.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		for (int i = 0; i < operations.length; i++) {
+			if (pick < cumulativeWeights[i]) {
+				return operations[i];
+			}
+		}
+		return operations[operations.length - 1];
+	}
+
+	/**
+	 * executes and times one operation from its scheduled start. Operations on
+	 * existing records are skipped when no live record is found.
+	 */
+	private void execute(StockTradeWorkloadGenerator generator, Operation operation, long scheduled) {
+		Long id = null;
+		String security = null;
+		List<StockTrade> stockTrades = null;
+		StockTrade stockTrade = null;
+		int pageNo = 0;
+		switch (operation) {
+		case LIST:
+			security = generator.randomSecurity();
+			pageNo = 1 + generator.nextInt(LIST_PAGES);
+			break;
+		case POST_BULK:
+			stockTrades = generator.newTrades(settings.getBatchSize());
+			break;
+		default:
+			id = generator.randomLiveId();
+			security = id == null ? null : generator.securityOf(id);
+			if (security == null || (operation == Operation.DELETE && !generator.markDeleted(id))) {
+				return;
+			}
+			if (operation == Operation.PUT) {
+				stockTrade = generator.replacement(id);
+			} else if (operation == Operation.PATCH) {
+				stockTrade = generator.closeCorrection();
+			}
+		}
+		try {
+			switch (operation) {
+			case GET:
+				client.get(id, security);
+				break;
+			case LIST:
+				client.list(pageNo, settings.getPageSize(), security);
+				break;
+			case POST_BULK:
+				client.postBulk(stockTrades);
+				break;
+			case PUT:
+				client.put(id, security, stockTrade);
+				break;
+			case PATCH:
+				client.patch(id, security, stockTrade);
+				break;
+			case DELETE:
+				client.delete(id, security);
+				break;
+			}
+			recorder.recordSuccess(operation, System.nanoTime() - scheduled);
+			if (operation == Operation.POST_BULK) {
+				generator.markCreated(stockTrades);
+			} else if (operation == Operation.PUT) {
+				generator.markCreated(Collections.singletonList(stockTrade));
+			}
+		} catch (RestClientException e) {
+			recorder.recordError(operation);
+			LOGGER_OBJ.debug(operation + " failed: " + e.getMessage());
+		}
+	}
+
+	private void report() throws IOException {
+		recorder.printSummary(System.out);
+		File reportDir = new File(settings.getReportDir());
+		reportDir.mkdirs();
+		recorder.writeDistributions(reportDir);
+		Properties results = recorder.results();
+		try (OutputStream out = new FileOutputStream(new File(reportDir, "results.properties"))) {
+			results.store(out, "load test results, " + settings);
+		}
+		BaselineComparator comparator = new BaselineComparator(settings.getTolerance(), settings.getMaxErrorRate());
+		List<String> errorRates = comparator.findExcessiveErrorRates(results);
+		if (!errorRates.isEmpty()) {
+			throw new IllegalStateException("load test requests failed too often: " + errorRates);
+		}
+		File baselineFile = new File(settings.getBaseline());
+		if (settings.isUpdateBaseline()) {
+			try (OutputStream out = new FileOutputStream(baselineFile)) {
+				results.store(out, "load test baseline, " + settings);
+			}
+			LOGGER_OBJ.info("baseline " + baselineFile + " is updated");
+			return;
+		}
+		Properties baseline = new Properties();
+		if (baselineFile.exists()) {
+			try (InputStream in = new FileInputStream(baselineFile)) {
+				baseline.load(in);
+			}
+		}
+		if (comparator.countCheckedMetrics(baseline) == 0) {
+			throw new IllegalStateException("baseline " + baselineFile + " has no latency or throughput metrics,"
+					+ " record one on the reference machine with -Dloadtest.updateBaseline=true");
+		}
+		List<String> regressions = comparator.findRegressions(baseline, results);
+		if (!regressions.isEmpty()) {
+			throw new IllegalStateException("load test regressed against " + baselineFile + ": " + regressions);
+		}
+		LOGGER_OBJ.info("load test results are within " + settings.getTolerance() + " of the baseline");
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.reactiveworks.stocktrade.loadtest;
+
+/**
+ * Settings of a load test run, read from {@code loadtest.*} system properties.
+ */
+public class LoadTestSettings {
+
+	private final int threads = Integer.getInteger("loadtest.threads", 8);
+	private final double rate = Double.parseDouble(System.getProperty("loadtest.rate", "400"));
+	private final int warmupSeconds = Integer.getInteger("loadtest.warmupSeconds", 10);
+	private final int durationSeconds = Integer.getInteger("loadtest.durationSeconds", 60);
+	private final int securities = Integer.getInteger("loadtest.securities", 200);
+	private final int seedRecords = Integer.getInteger("loadtest.seedRecords", 5000);
+	private final int batchSize = Integer.getInteger("loadtest.batchSize", 50);
+	private final int pageSize = Integer.getInteger("loadtest.pageSize", 20);
+	private final long randomSeed = Long.getLong("loadtest.seed", 42L);
+	private final String mix = System.getProperty("loadtest.mix",
+			"GET=50,LIST=15,POST_BULK=5,PUT=10,PATCH=15,DELETE=5");
+	private final String mongoVersion = System.getProperty("loadtest.mongoVersion", "4.0.2");
+	private final String baseline = System.getProperty("loadtest.baseline",
+			"src/loadtest/resources/loadtest-baseline.properties");
+	private final String reportDir = System.getProperty("loadtest.reportDir", "target/loadtest");
+	private final double tolerance = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.20"));
+	private final double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.maxErrorRate", "0.01"));
+	private final boolean updateBaseline = Boolean.getBoolean("loadtest.updateBaseline");
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @return requests per second issued by all workers together.
+	 */
+	public double getRate() {
+		return rate;
+	}
+
+	public int getWarmupSeconds() {
+		return warmupSeconds;
+	}
+
+	public int getDurationSeconds() {
+		return durationSeconds;
+	}
+
+	public int getSecurities() {
+		return securities;
+	}
+
+	public int getSeedRecords() {
+		return seedRecords;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public long getRandomSeed() {
+		return randomSeed;
+	}
+
+	public String getMix() {
+		return mix;
+	}
+
+	public String getMongoVersion() {
+		return mongoVersion;
+	}
+
+	public String getBaseline() {
+		return baseline;
+	}
+
+	public String getReportDir() {
+		return reportDir;
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * @return share of the requests of an operation that may fail.
+	 */
+	public double getMaxErrorRate() {
+		return maxErrorRate;
+	}
+
+	public boolean isUpdateBaseline() {
+		return updateBaseline;
+	}
+
+	@Override
+	public String toString() {
+		return "LoadTestSettings [threads=" + threads + ", rate=" + rate + ", warmupSeconds=" + warmupSeconds
+				+ ", durationSeconds=" + durationSeconds + ", securities=" + securities + ", seedRecords="
+				+ seedRecords + ", batchSize=" + batchSize + ", pageSize=" + pageSize + ", seed=" + randomSeed
+				+ ", mix=" + mix + ", tolerance=" + tolerance + ", maxErrorRate=" + maxErrorRate + "]";
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.reactiveworks.stocktrade.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The /stocktrades operations exercised by the load test.
+ */
+public enum Operation {
+	GET, LIST, POST_BULK, PUT, PATCH, DELETE;
+
+	/**
+	 * parses an operation mix such as {@code GET=50,LIST=10,POST_BULK=5}.
+	 * Operations that are not mentioned get a weight of zero.
+	 * 
+	 * @param mix comma separated operation=weight pairs.
+	 * @return the weight of every operation.
+	 * @throws IllegalArgumentException when the mix is malformed or all weights
+	 *                                  are zero.
+	 */
+	public static Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+		for (Operation operation : values()) {
+			weights.put(operation, 0);
+		}
+		int total = 0;
+		for (String entry : mix.split(",")) {
+			String[] pair = entry.trim().split("=");
+			if (pair.length != 2) {
+				throw new IllegalArgumentException("malformed operation mix entry " + entry);
+			}
+			int weight = Integer.parseInt(pair[1].trim());
+			weights.put(valueOf(pair[0].trim().toUpperCase()), weight);
+			total += weight;
+		}
+		if (total <= 0) {
+			throw new IllegalArgumentException("operation mix " + mix + " has no positive weight");
+		}
+		return weights;
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.reactiveworks.stocktrade.loadtest;
+
+import java.util.List;
+
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+/**
+ * Thin client for the /stocktrades endpoints. Every call throws a
+ * RestClientException when the response is not successful. Apache
+ * HttpComponents is used because the JDK connection doesn't support PATCH.
+ */
+public class StockTradeApiClient {
+
+	private final RestTemplate restTemplate;
+	private final String baseUrl;
+
+	public StockTradeApiClient(String baseUrl, int maxConnections) {
+		this.baseUrl = baseUrl;
+		this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(
+				HttpClients.custom().setMaxConnTotal(maxConnections).setMaxConnPerRoute(maxConnections).build()));
+	}
+
+	public void get(long id, String security) {
+		restTemplate.getForObject(baseUrl + "/{id}?security={security}", String.class, id, security);
+	}
+
+	public void list(int pageNo, int pageSize, String security) {
+		restTemplate.getForObject(baseUrl + "?pageNo={pageNo}&pageSize={pageSize}&security={security}", String.class,
+				pageNo, pageSize, security);
+	}
+
+	public void postBulk(List<StockTrade> stockTrades) {
+		restTemplate.postForObject(baseUrl, stockTrades, String.class);
+	}
+
+	public void put(long id, String security, StockTrade stockTrade) {
+		restTemplate.put(baseUrl + "/{id}?security={security}", stockTrade, id, security);
+	}
+
+	public void patch(long id, String security, StockTrade stockTrade) {
+		restTemplate.patchForObject(baseUrl + "/{id}?security={security}", stockTrade, String.class, id, security);
+	}
+
+	public void delete(long id, String security) {
+		restTemplate.delete(baseUrl + "/{id}?security={security}", id, security);
+	}
+
+}
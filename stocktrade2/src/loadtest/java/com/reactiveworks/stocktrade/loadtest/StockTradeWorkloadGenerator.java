@@ -0,0 +1,248 @@
+package com.reactiveworks.stocktrade.loadtest;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+/**
+ * Generates realistic stocktrade records for many securities. Every security
+ * follows its own daily random walk, so open, high, low and close stay
+ * consistent with each other and successive trading days of a security
+ * continue from the previous close.
+ * <p>
+ * A generator belongs to a single load test worker and is not thread-safe.
+ * Every worker owns a disjoint slice of the securities, worker w creating the
+ * records of the securities with index i % workers == w, so there is a single
+ * walk and at most one record per security and trading day. The workers also
+ * own a disjoint slice of the ids and their own random sequence, so runs with
+ * the same seed and number of workers issue the same requests.
+ */
+public class StockTradeWorkloadGenerator {
+
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+	private static final double DAILY_VOLATILITY = 0.02;
+
+	private final Random random;
+	private final String[] securities;
+	private final int[] ownedSecurities;
+	private final double[] lastClose;
+	private final int[] tradingDay;
+	private final long firstDay;
+	private final long firstId;
+	private final int idStride;
+	private int createdIds;
+	private final Map<Long, StockTrade> liveRecords = new HashMap<>();
+
+	/**
+	 * creates the generator of one worker.
+	 * 
+	 * @param securityCount number of distinct securities.
+	 * @param seed          seed of the run. The securities and their starting
+	 *                      prices only depend on it, the generated records also
+	 *                      on the worker.
+	 * @param worker        index of the worker, from 0.
+	 * @param workers       number of workers.
+	 * @throws IllegalArgumentException when there are fewer securities than
+	 *                                  workers.
+	 */
+	public StockTradeWorkloadGenerator(int securityCount, long seed, int worker, int workers) {
+		if (securityCount < workers) {
+			throw new IllegalArgumentException(
+					"every worker needs a security of its own, got " + securityCount + " for " + workers + " workers");
+		}
+		Random shared = new Random(seed);
+		Set<String> names = new LinkedHashSet<>();
+		while (names.size() < securityCount) {
+			int length = 3 + shared.nextInt(2);
+			StringBuilder name = new StringBuilder(length);
+			for (int i = 0; i < length; i++) {
+				name.append((char) ('A' + shared.nextInt(26)));
+			}
+			names.add(name.toString());
+		}
+		securities = names.toArray(new String[0]);
+		lastClose = new double[securityCount];
+		tradingDay = new int[securityCount];
+		for (int i = 0; i < securityCount; i++) {
+			lastClose[i] = 5 + shared.nextDouble() * 495;
+		}
+		ownedSecurities = new int[(securityCount - worker + workers - 1) / workers];
+		for (int i = 0; i < ownedSecurities.length; i++) {
+			ownedSecurities[i] = worker + i * workers;
+		}
+		random = new Random(seed * 31 + worker + 1);
+		firstId = worker + 1;
+		idStride = workers;
+		Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+		calendar.clear();
+		calendar.set(2010, Calendar.JANUARY, 4);
+		firstDay = calendar.getTimeInMillis();
+	}
+
+	/**
+	 * returns the next trading day record of a random security owned by the
+	 * worker.
+	 * 
+	 * @return a fully populated stocktrade record with a new id.
+	 */
+	public StockTrade newTrade() {
+		int index = ownedSecurities[random.nextInt(ownedSecurities.length)];
+		Date date = new Date(firstDay + tradingDayOffset(tradingDay[index]++) * DAY_MILLIS);
+		StockTrade stockTrade = trade(securities[index], date, lastClose[index]);
+		lastClose[index] = stockTrade.getClose();
+		stockTrade.setId(firstId + (long) createdIds++ * idStride);
+		return stockTrade;
+	}
+
+	/**
+	 * returns the given number of new records.
+	 * 
+	 * @param count number of records.
+	 * @return the new records.
+	 */
+	public List<StockTrade> newTrades(int count) {
+		List<StockTrade> stockTrades = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			stockTrades.add(newTrade());
+		}
+		return stockTrades;
+	}
+
+	/**
+	 * returns a full replacement for a live record. The replacement keeps the id,
+	 * security and date of the record, so the shard key is unchanged and the PUT
+	 * replaces the record in place, and only moves the prices.
+	 * 
+	 * @param id id of the live record.
+	 * @return the replacement record.
+	 * @throws IllegalArgumentException when the record is not live.
+	 */
+	public StockTrade replacement(long id) {
+		StockTrade stored = liveRecords.get(id);
+		if (stored == null) {
+			throw new IllegalArgumentException("stocktrade record " + id + " is not live");
+		}
+		StockTrade stockTrade = trade(stored.getSecurity(), stored.getDate(), stored.getClose());
+		stockTrade.setId(id);
+		return stockTrade;
+	}
+
+	/**
+	 * returns a partial update that only corrects the closing prices.
+	 * 
+	 * @return the partial record.
+	 */
+	public StockTrade closeCorrection() {
+		double close = 5 + random.nextDouble() * 495;
+		StockTrade stockTrade = new StockTrade();
+		stockTrade.setClose(round(close));
+		stockTrade.setAdjClose(round(close * 0.98));
+		return stockTrade;
+	}
+
+	/**
+	 * returns a random security, including the ones of the other workers.
+	 * 
+	 * @return the security.
+	 */
+	public String randomSecurity() {
+		return securities[random.nextInt(securities.length)];
+	}
+
+	/**
+	 * returns a random number from the random sequence of the worker.
+	 * 
+	 * @param bound upper bound, exclusive.
+	 * @return a number from 0 to bound - 1.
+	 */
+	public int nextInt(int bound) {
+		return random.nextInt(bound);
+	}
+
+	/**
+	 * returns the id of a random record that was created and not deleted yet.
+	 * 
+	 * @return the id, or null when no live record was found.
+	 */
+	public Long randomLiveId() {
+		for (int attempt = 0; attempt < 8 && createdIds > 0; attempt++) {
+			long id = firstId + (long) random.nextInt(createdIds) * idStride;
+			if (liveRecords.containsKey(id)) {
+				return id;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * returns the security of a live record.
+	 * 
+	 * @param id id of the record.
+	 * @return the security, or null when the record is not live.
+	 */
+	public String securityOf(long id) {
+		StockTrade stockTrade = liveRecords.get(id);
+		return stockTrade == null ? null : stockTrade.getSecurity();
+	}
+
+	/**
+	 * records created or replaced records as live, remembering their security,
+	 * date and close for later replacements.
+	 * 
+	 * @param stockTrades the stored records.
+	 */
+	public void markCreated(List<StockTrade> stockTrades) {
+		for (StockTrade stockTrade : stockTrades) {
+			liveRecords.put(stockTrade.getId(), stockTrade);
+		}
+	}
+
+	public boolean markDeleted(long id) {
+		return liveRecords.remove(id) != null;
+	}
+
+	public int liveRecordCount() {
+		return liveRecords.size();
+	}
+
+	/**
+	 * returns the record of one trading day, opening close to the given close.
+	 */
+	private StockTrade trade(String security, Date date, double previousClose) {
+		double open = previousClose * (1 + random.nextGaussian() * DAILY_VOLATILITY / 4);
+		double close = Math.max(0.5, open * (1 + random.nextGaussian() * DAILY_VOLATILITY));
+		double high = Math.max(open, close) * (1 + random.nextDouble() * DAILY_VOLATILITY);
+		double low = Math.min(open, close) * (1 - random.nextDouble() * DAILY_VOLATILITY);
+		StockTrade stockTrade = new StockTrade();
+		stockTrade.setSecurity(security);
+		stockTrade.setDate(date);
+		stockTrade.setOpen(round(open));
+		stockTrade.setHigh(round(high));
+		stockTrade.setLow(round(low));
+		stockTrade.setClose(round(close));
+		stockTrade.setAdjClose(round(close * 0.98));
+		stockTrade.setVolume(Math.round(Math.exp(12 + random.nextGaussian())));
+		return stockTrade;
+	}
+
+	/**
+	 * maps a trading day number to a calendar day offset, skipping weekends.
+	 */
+	private static long tradingDayOffset(int day) {
+		return (day / 5) * 7L + day % 5;
+	}
+
+	private static double round(double price) {
+		return Math.round(price * 100) / 100.0;
+	}
+
+}
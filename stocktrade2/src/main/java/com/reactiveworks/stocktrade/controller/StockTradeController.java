@@ -44,15 +44,18 @@ public class StockTradeController {
 	 * 
 	 * @param pageNo   number of the page to be displayed.
 	 * @param pageSize numbers of records required in the page.
+	 * @param security optional security to restrict the records to, routes the
+	 *                 query to a single shard.
 	 * @return the stockTrade records from the database.
 	 * @throws StockTradeRecordNotFoundException when the stockTrade record is not
 	 *                                           present in the database.
 	 */
 	@GetMapping
 	public CollectionModel<StockTrade> getStockTrade(@RequestParam(defaultValue = "0", required = false) int pageNo,
-			@RequestParam(defaultValue = "3", required = false) int pageSize) throws StockTradeRecordNotFoundException {
+			@RequestParam(defaultValue = "3", required = false) int pageSize,
+			@RequestParam(required = false) String security) throws StockTradeRecordNotFoundException {
 		LOGGER_OBJ.debug("execution of getStockTrade() started");
-		List<StockTrade> stockTradeList = stockTrdService.getStockTrades(pageNo, pageSize);
+		List<StockTrade> stockTradeList = stockTrdService.getStockTrades(pageNo, pageSize, security);
 		System.out.println("stockTradeList: "+stockTradeList);
 //		for (StockTrade stockTrade : stockTradeList) {
 //			List<Link> links = new ArrayList<Link>();
@@ -77,22 +80,28 @@ public class StockTradeController {
 	/**
 	 * Gets the stockTrade record from the database with the given id.
 	 * 
-	 * @param id id of the stockTrade record to be fetched from the database.
+	 * @param id       id of the stockTrade record to be fetched from the
+	 *                 database.
+	 * @param security optional security of the record, routes the query to a
+	 *                 single shard.
 	 * @return stockTrade record from the database with the given id.
 	 * @throws StockTradeRecordNotFoundException when the stockTrade record is not
 	 *                                           present in the database.
 	 */
 	@GetMapping("/{id}")
-	public ResponseEntity<StockTrade> getStockTrade(@PathVariable int id) throws StockTradeRecordNotFoundException {
+	public ResponseEntity<StockTrade> getStockTrade(@PathVariable long id,
+			@RequestParam(required = false) String security) throws StockTradeRecordNotFoundException {
 		LOGGER_OBJ.debug("execution of getStockTrade() started");
-		StockTrade stockTradeObj = stockTrdService.getStockTradeRecord(id);
+		StockTrade stockTradeObj = stockTrdService.getStockTradeRecord(id, security);
 		List<Link> links = new ArrayList<Link>();
 		Link link = WebMvcLinkBuilder.linkTo(StockTradeController.class).slash(id).withSelfRel();
 		links.add(link);
-		link = WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(StockTradeController.class).deleteStockTrade(id))
+		link = WebMvcLinkBuilder
+				.linkTo(WebMvcLinkBuilder.methodOn(StockTradeController.class).deleteStockTrade(id, null))
 				.withRel("delete");
 		links.add(link);
-		link = WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(StockTradeController.class).deleteStockTrade(id))
+		link = WebMvcLinkBuilder
+				.linkTo(WebMvcLinkBuilder.methodOn(StockTradeController.class).deleteStockTrade(id, null))
 				.withRel("update");
 		links.add(link);
 		stockTradeObj.add(links);
@@ -100,6 +109,26 @@ public class StockTradeController {
 		return new ResponseEntity<StockTrade>(stockTradeObj, HttpStatus.OK);
 	}
 
+	/**
+	 * Gets the stockTrade record from the database with the given composite key.
+	 * 
+	 * @param tradeKey composite key of the record in the form
+	 *                 {@code SECURITY:yyyyMMdd:seq}.
+	 * @return stockTrade record from the database with the given key.
+	 * @throws StockTradeRecordNotFoundException when the stockTrade record is not
+	 *                                           present in the database.
+	 */
+	@GetMapping("/key/{tradeKey}")
+	public ResponseEntity<StockTrade> getStockTradeByKey(@PathVariable String tradeKey)
+			throws StockTradeRecordNotFoundException {
+		LOGGER_OBJ.debug("execution of getStockTradeByKey() started");
+		StockTrade stockTradeObj = stockTrdService.getStockTradeRecordByKey(tradeKey);
+		Link link = WebMvcLinkBuilder.linkTo(StockTradeController.class).slash(stockTradeObj.getId()).withSelfRel();
+		stockTradeObj.add(link);
+		LOGGER_OBJ.debug("execution of getStockTradeByKey() completed");
+		return new ResponseEntity<StockTrade>(stockTradeObj, HttpStatus.OK);
+	}
+
 	/**
 	 * adds the stockTrade records into the database.
 	 * 
@@ -125,7 +154,8 @@ public class StockTradeController {
 			link = WebMvcLinkBuilder.linkTo(StockTradeController.class).slash(stockTrdObj.getId()).withRel("delete");
 			links.add(link);
 			link = WebMvcLinkBuilder.linkTo(
-					WebMvcLinkBuilder.methodOn(StockTradeController.class).updateStockTrade(stockTrdObj.getId(), null))
+					WebMvcLinkBuilder.methodOn(StockTradeController.class).updateStockTrade(stockTrdObj.getId(), null,
+							null))
 					.withRel("update");
 			links.add(link);
 		}
@@ -136,6 +166,8 @@ public class StockTradeController {
 	 * updates or adds the stockTrade record in/into the database.
 	 * 
 	 * @param id            id of the record to be updated/inserted.
+	 * @param security      optional current security of the record, routes the
+	 *                      lookup to a single shard.
 	 * @param stockTradeObj stockTrade object to be updated/inserted.
 	 * @return the link to the record with given id.
 	 * @throws InsufficientResourceDetailsException when the stockTrade object
@@ -143,17 +175,18 @@ public class StockTradeController {
 	 *                                              fields.
 	 */
 	@PutMapping("/{id}")
-	public ResponseEntity<List<Link>> updateStockTrade(@PathVariable int id, @RequestBody StockTrade stockTradeObj)
+	public ResponseEntity<List<Link>> updateStockTrade(@PathVariable long id,
+			@RequestParam(required = false) String security, @RequestBody StockTrade stockTradeObj)
 			throws InsufficientResourceDetailsException {
 		LOGGER_OBJ.debug("execution of updateStockTrade() started");
-		stockTrdService.updateStockTrade(id, stockTradeObj);
+		stockTrdService.updateStockTrade(id, security, stockTradeObj);
 		List<Link> links = new ArrayList<Link>();
-		Link link = WebMvcLinkBuilder
-				.linkTo(WebMvcLinkBuilder.methodOn(StockTradeController.class).updateStockTrade(id, stockTradeObj))
+		Link link = WebMvcLinkBuilder.linkTo(
+				WebMvcLinkBuilder.methodOn(StockTradeController.class).updateStockTrade(id, null, stockTradeObj))
 				.withSelfRel();
 		links.add(link);
-		link = WebMvcLinkBuilder
-				.linkTo(WebMvcLinkBuilder.methodOn(StockTradeController.class).updateStockTrade(id, stockTradeObj))
+		link = WebMvcLinkBuilder.linkTo(
+				WebMvcLinkBuilder.methodOn(StockTradeController.class).updateStockTrade(id, null, stockTradeObj))
 				.withRel("delete");
 		links.add(link);
 		LOGGER_OBJ.debug("execution of updateStockTrade() completed");
@@ -165,20 +198,24 @@ public class StockTradeController {
 	 * updates the stockTrade record with the given id.
 	 * 
 	 * @param id            id of the stockTrade record to be updated.
+	 * @param security      optional current security of the record, routes the
+	 *                      lookup to a single shard.
 	 * @param stockTradeObj stockTrade object with fields to be updated.
 	 * @return the link the updated object.
 	 * @throws StockTradeRecordNotFoundException when the stockTrade record with the
 	 *                                           given is not available.
 	 */
 	@PatchMapping("/{id}")
-	public ResponseEntity<List<Link>> updateStockTradeProperties(@PathVariable int id,
-			@RequestBody StockTrade stockTradeObj) throws StockTradeRecordNotFoundException {
+	public ResponseEntity<List<Link>> updateStockTradeProperties(@PathVariable long id,
+			@RequestParam(required = false) String security, @RequestBody StockTrade stockTradeObj)
+			throws StockTradeRecordNotFoundException {
 		LOGGER_OBJ.debug("execution of updateStockTradeProperties() started");
-		stockTrdService.updateStockTradeDetails(id, stockTradeObj);
+		stockTrdService.updateStockTradeDetails(id, security, stockTradeObj);
 		List<Link> links = new ArrayList<Link>();
 		Link link = WebMvcLinkBuilder.linkTo(StockTradeController.class).slash(id).withSelfRel();
 		links.add(link);
-		link = WebMvcLinkBuilder.linkTo(WebMvcLinkBuilder.methodOn(StockTradeController.class).deleteStockTrade(id))
+		link = WebMvcLinkBuilder
+				.linkTo(WebMvcLinkBuilder.methodOn(StockTradeController.class).deleteStockTrade(id, null))
 				.withRel("delete");
 		links.add(link);
 		LOGGER_OBJ.debug("execution of updateStockTradeProperties() completed");
@@ -189,17 +226,20 @@ public class StockTradeController {
 	/**
 	 * deletes the stockTrade record with the given id from the database.
 	 * 
-	 * @param id id of the stockTrade record to be deleted.
+	 * @param id       id of the stockTrade record to be deleted.
+	 * @param security optional security of the record, routes the lookup to a
+	 *                 single shard.
 	 * @return the deletion status.
 	 * @throws StockTradeRecordNotFoundException when the stockTrade record with the
 	 *                                           given id doesn't exist in the
 	 *                                           database.
 	 */
 	@DeleteMapping("/{id}")
-	public ResponseEntity<String> deleteStockTrade(@PathVariable int id) throws StockTradeRecordNotFoundException {
+	public ResponseEntity<String> deleteStockTrade(@PathVariable long id,
+			@RequestParam(required = false) String security) throws StockTradeRecordNotFoundException {
 		LOGGER_OBJ.debug("execution of deleteStockTrade() started");
 		String result;
-		stockTrdService.deleteStockTrade(id);
+		stockTrdService.deleteStockTrade(id, security);
 		result = "stocktrade with id " + id + " is deleted";
 		LOGGER_OBJ.debug("execution of deleteStockTrade() completed");
 		return new ResponseEntity<String>(result, HttpStatus.OK);
@@ -0,0 +1,81 @@
+package com.reactiveworks.stocktrade.eventlog;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of the local stocktrade event log.
+ */
+@Component
+@ConfigurationProperties(prefix = "stocktrade.eventlog")
+public class EventLogProperties {
+
+	private boolean enabled = false;
+	private String directory = "eventlog";
+	private int segmentSize = 64 * 1024 * 1024;
+	private long snapshotIntervalEvents = 100000;
+	private int snapshotRunSize = 100000;
+	private boolean forceOnAppend = false;
+	private boolean deleteCompactedSegments = true;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	public void setSegmentSize(int segmentSize) {
+		this.segmentSize = segmentSize;
+	}
+
+	public long getSnapshotIntervalEvents() {
+		return snapshotIntervalEvents;
+	}
+
+	public void setSnapshotIntervalEvents(long snapshotIntervalEvents) {
+		this.snapshotIntervalEvents = snapshotIntervalEvents;
+	}
+
+	/**
+	 * @return number of records compaction holds in memory before it spills a
+	 *         sorted run to disk.
+	 */
+	public int getSnapshotRunSize() {
+		return snapshotRunSize;
+	}
+
+	public void setSnapshotRunSize(int snapshotRunSize) {
+		this.snapshotRunSize = snapshotRunSize;
+	}
+
+	public boolean isForceOnAppend() {
+		return forceOnAppend;
+	}
+
+	public void setForceOnAppend(boolean forceOnAppend) {
+		this.forceOnAppend = forceOnAppend;
+	}
+
+	public boolean isDeleteCompactedSegments() {
+		return deleteCompactedSegments;
+	}
+
+	public void setDeleteCompactedSegments(boolean deleteCompactedSegments) {
+		this.deleteCompactedSegments = deleteCompactedSegments;
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.reactiveworks.stocktrade.eventlog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One memory-mapped file of the event log. The file is preallocated to the
+ * segment size and filled from the start; the events it holds start at the
+ * base offset encoded in its name.
+ */
+final class LogSegment implements Closeable {
+
+	private final long baseOffset;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private long nextOffset;
+
+	private LogSegment(long baseOffset, FileChannel channel, MappedByteBuffer buffer) {
+		this.baseOffset = baseOffset;
+		this.channel = channel;
+		this.buffer = buffer;
+		this.nextOffset = baseOffset;
+	}
+
+	/**
+	 * opens the segment for appending, creating it when it doesn't exist. The
+	 * write position is recovered by scanning the records already written; a
+	 * torn record at the end is overwritten by the next append.
+	 */
+	static LogSegment open(Path path, long baseOffset, int segmentSize) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		long size = Math.max(segmentSize, channel.size());
+		LogSegment segment = new LogSegment(baseOffset, channel, channel.map(MapMode.READ_WRITE, 0, size));
+		TradeEvent event;
+		while ((event = TradeEventCodec.read(segment.buffer)) != null) {
+			segment.nextOffset = event.getOffset() + 1;
+		}
+		return segment;
+	}
+
+	/**
+	 * maps a segment for reading.
+	 */
+	static ByteBuffer mapReadOnly(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * appends the event.
+	 *
+	 * @return false when the segment doesn't have room for the event.
+	 */
+	boolean append(TradeEvent event) {
+		if (buffer.remaining() < TradeEventCodec.recordSize(event) + TradeEventCodec.HEADER_SIZE) {
+			return false;
+		}
+		TradeEventCodec.write(event, buffer);
+		nextOffset = event.getOffset() + 1;
+		return true;
+	}
+
+	/**
+	 * returns a view of the records written so far, positioned at the start.
+	 */
+	ByteBuffer readView() {
+		ByteBuffer view = buffer.duplicate();
+		view.limit(buffer.position());
+		view.position(0);
+		return view;
+	}
+
+	long getBaseOffset() {
+		return baseOffset;
+	}
+
+	long getNextOffset() {
+		return nextOffset;
+	}
+
+	void force() {
+		buffer.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+
+}
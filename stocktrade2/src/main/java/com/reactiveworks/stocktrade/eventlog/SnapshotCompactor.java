@@ -0,0 +1,147 @@
+package com.reactiveworks.stocktrade.eventlog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Compacts a stream of events into the latest state of every live record
+ * without holding all records in memory. The events are collected into runs of
+ * at most {@code runSize} records, every run is written to a temporary file
+ * sorted by id, and the runs are merged by id into the snapshot. Of several
+ * events for the same id the one from the latest run wins, a delete drops the
+ * record.
+ */
+final class SnapshotCompactor implements TradeEventHandler, Closeable {
+
+	private static final String RUN_PREFIX = "compaction-run-";
+	private static final String RUN_SUFFIX = ".tmp";
+	private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+	private final Path directory;
+	private final int runSize;
+	private final TreeMap<Long, TradeEvent> run = new TreeMap<>();
+	private final List<Path> runFiles = new ArrayList<>();
+
+	/**
+	 * @param directory directory for the temporary run files.
+	 * @param runSize   number of records held in memory before a run is written.
+	 */
+	SnapshotCompactor(Path directory, int runSize) {
+		this.directory = directory;
+		this.runSize = runSize;
+	}
+
+	@Override
+	public void onEvent(TradeEvent event) {
+		run.put(event.getStockTrade().getId(), event);
+		if (run.size() >= runSize) {
+			try {
+				writeRun();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * merges the runs and writes every live record to the snapshot.
+	 *
+	 * @param writer the snapshot to write to, not committed by this method.
+	 */
+	void writeTo(SnapshotStore.Writer writer) throws IOException {
+		if (!run.isEmpty()) {
+			writeRun();
+		}
+		PriorityQueue<RunCursor> cursors = new PriorityQueue<>();
+		for (int i = 0; i < runFiles.size(); i++) {
+			RunCursor cursor = new RunCursor(i, LogSegment.mapReadOnly(runFiles.get(i)));
+			if (cursor.advance()) {
+				cursors.add(cursor);
+			}
+		}
+		while (!cursors.isEmpty()) {
+			long id = cursors.peek().current.getStockTrade().getId();
+			TradeEvent latest = null;
+			while (!cursors.isEmpty() && cursors.peek().current.getStockTrade().getId() == id) {
+				RunCursor cursor = cursors.poll();
+				latest = cursor.current;
+				if (cursor.advance()) {
+					cursors.add(cursor);
+				}
+			}
+			if (latest.getType() != TradeEvent.Type.DELETE) {
+				writer.write(latest.getStockTrade());
+			}
+		}
+	}
+
+	/**
+	 * deletes the run files.
+	 */
+	@Override
+	public void close() throws IOException {
+		for (Path runFile : runFiles) {
+			Files.deleteIfExists(runFile);
+		}
+	}
+
+	private void writeRun() throws IOException {
+		Path runFile = directory.resolve(RUN_PREFIX + runFiles.size() + RUN_SUFFIX);
+		runFiles.add(runFile);
+		try (FileChannel channel = FileChannel.open(runFile, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+			for (TradeEvent event : run.values()) {
+				int size = TradeEventCodec.recordSize(event);
+				if (buffer.remaining() < size) {
+					SnapshotStore.drain(buffer, channel);
+					if (buffer.capacity() < size) {
+						buffer = ByteBuffer.allocate(size);
+					}
+				}
+				TradeEventCodec.write(event, buffer);
+			}
+			SnapshotStore.drain(buffer, channel);
+		}
+		run.clear();
+	}
+
+	/**
+	 * position in one run file. Cursors are ordered by the id of their current
+	 * record, then by run, so that the latest run is polled last.
+	 */
+	private static final class RunCursor implements Comparable<RunCursor> {
+
+		private final int runIndex;
+		private final ByteBuffer records;
+		private TradeEvent current;
+
+		RunCursor(int runIndex, ByteBuffer records) {
+			this.runIndex = runIndex;
+			this.records = records;
+		}
+
+		boolean advance() {
+			current = TradeEventCodec.read(records);
+			return current != null;
+		}
+
+		@Override
+		public int compareTo(RunCursor other) {
+			int byId = Long.compare(current.getStockTrade().getId(), other.current.getStockTrade().getId());
+			return byId != 0 ? byId : Integer.compare(runIndex, other.runIndex);
+		}
+
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.reactiveworks.stocktrade.eventlog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+/**
+ * Reads and writes compacted snapshots, i.e. the state of every live
+ * stocktrade record up to an offset of the event log. A snapshot file starts
+ * with {@code int magic, long offset, int count} followed by one framed
+ * SNAPSHOT record per stocktrade record.
+ */
+final class SnapshotStore {
+
+	private static final int MAGIC = 0x53545353;
+	private static final int SNAPSHOT_HEADER_SIZE = 4 + 8 + 4;
+	private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+	private SnapshotStore() {
+	}
+
+	/**
+	 * Writes a snapshot record by record, so that snapshots larger than the heap
+	 * can be written. The file is written to a temporary name first and only
+	 * renamed to the snapshot name by {@link #commit()}; closing an uncommitted
+	 * writer deletes it.
+	 */
+	static final class Writer implements Closeable {
+
+		private final Path path;
+		private final Path temporary;
+		private final long offset;
+		private final long timestamp = System.currentTimeMillis();
+		private final FileChannel channel;
+		private ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+		private int count;
+		private boolean committed;
+
+		/**
+		 * starts the snapshot up to the given offset.
+		 *
+		 * @param path   the snapshot file.
+		 * @param offset offset of the first event not included in the snapshot.
+		 */
+		Writer(Path path, long offset) throws IOException {
+			this.path = path;
+			this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+			this.offset = offset;
+			this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			buffer.putInt(MAGIC).putLong(offset).putInt(0);
+		}
+
+		/**
+		 * adds a live stocktrade record to the snapshot.
+		 */
+		void write(StockTrade stockTrade) throws IOException {
+			TradeEvent event = new TradeEvent(offset - 1, timestamp, TradeEvent.Type.SNAPSHOT, stockTrade);
+			int size = TradeEventCodec.recordSize(event);
+			if (buffer.remaining() < size) {
+				drain(buffer, channel);
+				if (buffer.capacity() < size) {
+					buffer = ByteBuffer.allocate(size);
+				}
+			}
+			TradeEventCodec.write(event, buffer);
+			count++;
+		}
+
+		int getCount() {
+			return count;
+		}
+
+		/**
+		 * completes the header, forces the file to disk and renames it to the
+		 * snapshot name.
+		 */
+		void commit() throws IOException {
+			drain(buffer, channel);
+			ByteBuffer header = ByteBuffer.allocate(4);
+			header.putInt(count).flip();
+			channel.write(header, 4 + 8);
+			channel.force(true);
+			channel.close();
+			Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			committed = true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!committed) {
+				channel.close();
+				Files.deleteIfExists(temporary);
+			}
+		}
+
+	}
+
+	/**
+	 * delivers the records of the snapshot to the handler.
+	 *
+	 * @return offset of the first event not included in the snapshot.
+	 */
+	static long read(Path path, TradeEventHandler handler) throws IOException {
+		ByteBuffer buffer = LogSegment.mapReadOnly(path);
+		if (buffer.remaining() < SNAPSHOT_HEADER_SIZE || buffer.getInt() != MAGIC) {
+			throw new IOException("snapshot " + path + " is corrupt");
+		}
+		long offset = buffer.getLong();
+		int count = buffer.getInt();
+		for (int i = 0; i < count; i++) {
+			TradeEvent event = TradeEventCodec.read(buffer);
+			if (event == null) {
+				throw new IOException("snapshot " + path + " is truncated after " + i + " of " + count + " records");
+			}
+			handler.onEvent(event);
+		}
+		return offset;
+	}
+
+	static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.reactiveworks.stocktrade.eventlog;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+/**
+ * A change of a stocktrade record as stored in the {@link TradeEventLog}.
+ * Every event carries the full record after the change, for deletes the record
+ * that was deleted.
+ */
+public class TradeEvent {
+
+	/**
+	 * SNAPSHOT events are the records of a compacted snapshot, delivered before
+	 * the events logged after it.
+	 */
+	public enum Type {
+		INSERT, UPDATE, DELETE, SNAPSHOT
+	}
+
+	private final long offset;
+	private final long timestamp;
+	private final Type type;
+	private final StockTrade stockTrade;
+
+	public TradeEvent(long offset, long timestamp, Type type, StockTrade stockTrade) {
+		this.offset = offset;
+		this.timestamp = timestamp;
+		this.type = type;
+		this.stockTrade = stockTrade;
+	}
+
+	/**
+	 * @return position of the event in the log. Snapshot records carry the
+	 *         offset of the last event included in the snapshot.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return time the event was logged, in milliseconds since the epoch.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public StockTrade getStockTrade() {
+		return stockTrade;
+	}
+
+	@Override
+	public String toString() {
+		return "TradeEvent [offset=" + offset + ", timestamp=" + timestamp + ", type=" + type + ", stockTrade="
+				+ stockTrade + "]";
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.reactiveworks.stocktrade.eventlog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.CRC32;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+/**
+ * Binary encoding of a {@link TradeEvent}. Every record is framed as
+ * {@code int length, int crc32, body}; a zero length marks the end of the
+ * written part of a segment and a checksum mismatch a torn write.
+ */
+final class TradeEventCodec {
+
+	static final int HEADER_SIZE = 8;
+	private static final int FIXED_BODY_SIZE = 8 + 8 + 1 + 8 + 4 + 8 + 6 * 8 + 8;
+	private static final long NULL_LONG = Long.MIN_VALUE;
+
+	private TradeEventCodec() {
+	}
+
+	/**
+	 * returns the number of bytes the framed record of the event takes.
+	 */
+	static int recordSize(TradeEvent event) {
+		return HEADER_SIZE + FIXED_BODY_SIZE + securityBytes(event.getStockTrade()).length;
+	}
+
+	/**
+	 * writes the framed record of the event at the position of the buffer and
+	 * advances it.
+	 */
+	static void write(TradeEvent event, ByteBuffer buffer) {
+		StockTrade stockTrade = event.getStockTrade();
+		byte[] security = securityBytes(stockTrade);
+		int start = buffer.position();
+		buffer.putInt(FIXED_BODY_SIZE + security.length);
+		buffer.putInt(0);
+		int bodyStart = buffer.position();
+		buffer.putLong(event.getOffset());
+		buffer.putLong(event.getTimestamp());
+		buffer.put((byte) event.getType().ordinal());
+		buffer.putLong(stockTrade.getId());
+		buffer.putInt(stockTrade.getSecurity() == null ? -1 : security.length);
+		buffer.put(security);
+		buffer.putLong(stockTrade.getDate() == null ? NULL_LONG : stockTrade.getDate().getTime());
+		buffer.putDouble(stockTrade.getOpen());
+		buffer.putDouble(stockTrade.getHigh());
+		buffer.putDouble(stockTrade.getLow());
+		buffer.putDouble(stockTrade.getClose());
+		buffer.putDouble(stockTrade.getVolume());
+		buffer.putDouble(stockTrade.getAdjClose());
+		buffer.putLong(stockTrade.getSeq() == null ? NULL_LONG : stockTrade.getSeq());
+		buffer.putInt(start + 4, checksum(buffer, bodyStart, buffer.position()));
+	}
+
+	/**
+	 * reads the framed record at the position of the buffer and advances it.
+	 *
+	 * @return the event, or null when the buffer has no further complete record.
+	 *         The position is left unchanged in that case.
+	 */
+	static TradeEvent read(ByteBuffer buffer) {
+		int start = buffer.position();
+		if (buffer.remaining() < HEADER_SIZE) {
+			return null;
+		}
+		int length = buffer.getInt();
+		int crc = buffer.getInt();
+		int bodyStart = buffer.position();
+		if (length < FIXED_BODY_SIZE || length > buffer.remaining()
+				|| checksum(buffer, bodyStart, bodyStart + length) != crc) {
+			buffer.position(start);
+			return null;
+		}
+		long offset = buffer.getLong();
+		long timestamp = buffer.getLong();
+		TradeEvent.Type type = TradeEvent.Type.values()[buffer.get()];
+		StockTrade stockTrade = new StockTrade();
+		stockTrade.setId(buffer.getLong());
+		int securityLength = buffer.getInt();
+		if (securityLength >= 0) {
+			byte[] security = new byte[securityLength];
+			buffer.get(security);
+			stockTrade.setSecurity(new String(security, StandardCharsets.UTF_8));
+		}
+		long date = buffer.getLong();
+		stockTrade.setDate(date == NULL_LONG ? null : new Date(date));
+		stockTrade.setOpen(buffer.getDouble());
+		stockTrade.setHigh(buffer.getDouble());
+		stockTrade.setLow(buffer.getDouble());
+		stockTrade.setClose(buffer.getDouble());
+		stockTrade.setVolume(buffer.getDouble());
+		stockTrade.setAdjClose(buffer.getDouble());
+		long seq = buffer.getLong();
+		stockTrade.setSeq(seq == NULL_LONG ? null : seq);
+		return new TradeEvent(offset, timestamp, type, stockTrade);
+	}
+
+	private static byte[] securityBytes(StockTrade stockTrade) {
+		return stockTrade.getSecurity() == null ? new byte[0]
+				: stockTrade.getSecurity().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int checksum(ByteBuffer buffer, int from, int to) {
+		ByteBuffer body = buffer.duplicate();
+		body.limit(to);
+		body.position(from);
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		return (int) crc.getValue();
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.reactiveworks.stocktrade.eventlog;
+
+/**
+ * Receives the events replayed from the {@link TradeEventLog}, e.g. to rebuild
+ * an index, a rollup or an in-memory store.
+ */
+@FunctionalInterface
+public interface TradeEventHandler {
+
+	public void onEvent(TradeEvent event);
+
+}
@@ -0,0 +1,545 @@
+package com.reactiveworks.stocktrade.eventlog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+/**
+ * Append-only local log of the stocktrade inserts, updates and deletes, kept
+ * next to the stocktrade collection so that derived stores can be rebuilt
+ * without querying Mongo.
+ * <p>
+ * Events are numbered by a gapless offset and appended to memory-mapped
+ * segment files named after the offset of their first event. Every
+ * {@code snapshot-interval-events} events a compacted snapshot holding the
+ * latest state of every live record is written in the background, after which
+ * the segments it fully covers are deleted.
+ * <p>
+ * Writes go through {@link #write(TradeEvent.Type, List, Runnable)}, which
+ * applies the Mongo write and appends its events while holding the locks of
+ * the record ids, so the events of a record are logged in the order its writes
+ * were applied. A new log starts from a snapshot of the stocktrade collection.
+ * When an append fails the log is marked out of sync, further appends are
+ * skipped and the log is resynchronised from the collection in the background,
+ * or on the next start. A crash between a Mongo write and its append still
+ * loses that event.
+ * <p>
+ * Writes are only logged when {@code stocktrade.eventlog.enabled} is set.
+ */
+@Component
+public class TradeEventLog {
+	private static final Logger LOGGER_OBJ = LoggerFactory.getLogger(TradeEventLog.class);
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX = ".snap";
+	private static final String OUT_OF_SYNC_MARKER = "OUT_OF_SYNC";
+	private static final int ID_LOCK_STRIPES = 64;
+
+	@Autowired
+	private EventLogProperties eventLogProperties;
+	@Autowired
+	private MongoTemplate mongoTemplate;
+	private Path directory;
+	private LogSegment active;
+	private long nextOffset;
+	private volatile long lastSnapshotOffset;
+	private ExecutorService snapshotExecutor;
+	private final AtomicBoolean snapshotPending = new AtomicBoolean();
+	private final AtomicBoolean resyncPending = new AtomicBoolean();
+	private final Object snapshotLock = new Object();
+	private final ReentrantLock[] idLocks = new ReentrantLock[ID_LOCK_STRIPES];
+	private boolean appendsSuspended;
+	private volatile boolean inSync = true;
+
+	public TradeEventLog() {
+		for (int i = 0; i < idLocks.length; i++) {
+			idLocks[i] = new ReentrantLock();
+		}
+	}
+
+	@PostConstruct
+	public void open() throws IOException {
+		if (!eventLogProperties.isEnabled()) {
+			return;
+		}
+		directory = Paths.get(eventLogProperties.getDirectory());
+		Files.createDirectories(directory);
+		List<Long> snapshots = listOffsets(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		lastSnapshotOffset = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+		List<Long> segments = listOffsets("", SEGMENT_SUFFIX);
+		long baseOffset = segments.isEmpty() ? lastSnapshotOffset : segments.get(segments.size() - 1);
+		active = LogSegment.open(segmentPath(baseOffset), baseOffset, eventLogProperties.getSegmentSize());
+		nextOffset = active.getNextOffset();
+		snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "stocktrade-eventlog-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		if (snapshots.isEmpty() && segments.isEmpty()) {
+			LOGGER_OBJ.info("stocktrade event log is new, bootstrapping it from the collection");
+			resync();
+		} else if (Files.exists(directory.resolve(OUT_OF_SYNC_MARKER))) {
+			LOGGER_OBJ.warn("stocktrade event log is out of sync, resynchronising it from the collection");
+			inSync = false;
+			resync();
+		}
+		LOGGER_OBJ.info("stocktrade event log opened in " + directory.toAbsolutePath() + " at offset " + nextOffset);
+	}
+
+	@PreDestroy
+	public void close() throws IOException, InterruptedException {
+		if (!eventLogProperties.isEnabled()) {
+			return;
+		}
+		snapshotExecutor.shutdown();
+		snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+		synchronized (this) {
+			active.close();
+		}
+	}
+
+	public boolean isEnabled() {
+		return eventLogProperties.isEnabled();
+	}
+
+	/**
+	 * @return offset the next appended event will get.
+	 */
+	public synchronized long getNextOffset() {
+		return nextOffset;
+	}
+
+	/**
+	 * @return false from a failed append until the log is resynchronised from
+	 *         the collection. Replaying isn't possible meanwhile.
+	 */
+	public boolean isInSync() {
+		return inSync;
+	}
+
+	/**
+	 * applies the Mongo write of the stocktrade record and appends its event,
+	 * see {@link #write(TradeEvent.Type, List, Runnable)}.
+	 */
+	public void write(TradeEvent.Type type, StockTrade stockTrade, Runnable mongoWrite) {
+		write(type, Collections.singletonList(stockTrade), mongoWrite);
+	}
+
+	/**
+	 * applies the Mongo write of the stocktrade records and appends one event
+	 * per record, with consecutive offsets. The ids of the records are locked
+	 * while doing both. Nothing is appended when the Mongo write throws; a failed
+	 * append doesn't fail the write but marks the log out of sync.
+	 *
+	 * @param type        the kind of change.
+	 * @param stockTrades the records after the change, or the deleted records,
+	 *                    with their ids assigned.
+	 * @param mongoWrite  writes the change to Mongo.
+	 */
+	public void write(TradeEvent.Type type, List<StockTrade> stockTrades, Runnable mongoWrite) {
+		writeIfApplied(type, stockTrades, () -> {
+			mongoWrite.run();
+			return true;
+		});
+	}
+
+	/**
+	 * like {@link #write(TradeEvent.Type, List, Runnable)}, but the events are
+	 * only appended when the Mongo write reports that it changed the records.
+	 *
+	 * @param mongoWrite writes the change to Mongo and returns whether it was
+	 *                   applied.
+	 * @return the result of the Mongo write.
+	 */
+	public boolean writeIfApplied(TradeEvent.Type type, List<StockTrade> stockTrades, BooleanSupplier mongoWrite) {
+		AtomicBoolean applied = new AtomicBoolean();
+		writeApplied(type, stockTrades, () -> {
+			applied.set(mongoWrite.getAsBoolean());
+			return applied.get() ? stockTrades : Collections.<StockTrade>emptyList();
+		});
+		return applied.get();
+	}
+
+	/**
+	 * like {@link #write(TradeEvent.Type, List, Runnable)}, but only the events
+	 * of the records that the Mongo write reports as changed are appended, for
+	 * writes that may apply to part of the records.
+	 *
+	 * @param mongoWrite writes the change to Mongo and returns the changed
+	 *                   records, in the order of the given records.
+	 * @return the records changed by the Mongo write.
+	 */
+	public List<StockTrade> writeApplied(TradeEvent.Type type, List<StockTrade> stockTrades,
+			Supplier<List<StockTrade>> mongoWrite) {
+		if (!isEnabled()) {
+			return mongoWrite.get();
+		}
+		TreeSet<Integer> stripes = new TreeSet<>();
+		for (StockTrade stockTrade : stockTrades) {
+			stripes.add(Math.floorMod(Long.hashCode(stockTrade.getId()), ID_LOCK_STRIPES));
+		}
+		for (int stripe : stripes) {
+			idLocks[stripe].lock();
+		}
+		List<StockTrade> applied;
+		try {
+			applied = mongoWrite.get();
+			if (applied.isEmpty()) {
+				return applied;
+			}
+			appendAll(type, applied);
+		} finally {
+			for (int stripe : stripes.descendingSet()) {
+				idLocks[stripe].unlock();
+			}
+		}
+		scheduleSnapshotIfDue();
+		return applied;
+	}
+
+	/**
+	 * appends one event per stocktrade record, with consecutive offsets. Callers
+	 * outside of tests go through {@link #write(TradeEvent.Type, List, Runnable)}.
+	 */
+	void appendAll(TradeEvent.Type type, List<StockTrade> stockTrades) {
+		synchronized (this) {
+			if (appendsSuspended) {
+				scheduleResync();
+				return;
+			}
+			try {
+				long timestamp = System.currentTimeMillis();
+				for (StockTrade stockTrade : stockTrades) {
+					TradeEvent event = new TradeEvent(nextOffset, timestamp, type, stockTrade);
+					if (!active.append(event)) {
+						roll();
+						if (!active.append(event)) {
+							throw new IllegalArgumentException("event " + event + " doesn't fit into a log segment");
+						}
+					}
+					nextOffset++;
+				}
+				if (eventLogProperties.isForceOnAppend()) {
+					active.force();
+				}
+			} catch (RuntimeException e) {
+				markOutOfSync(e);
+			}
+		}
+	}
+
+	/**
+	 * delivers every logged event from the given offset on to the handler, in
+	 * offset order. Events appended while replaying are not delivered.
+	 *
+	 * @param fromOffset offset of the first event to deliver.
+	 * @param handler    receives the events.
+	 * @return offset of the first event that was not delivered, to continue from.
+	 * @throws IllegalStateException when events from the offset on were already
+	 *                               compacted into a snapshot, use
+	 *                               {@link #rebuild(TradeEventHandler)} then, or
+	 *                               when the log is out of sync.
+	 */
+	public long replay(long fromOffset, TradeEventHandler handler) {
+		checkEnabled();
+		checkInSync();
+		long upTo;
+		long activeBase;
+		ByteBuffer activeView;
+		synchronized (this) {
+			upTo = nextOffset;
+			activeBase = active.getBaseOffset();
+			activeView = active.readView();
+		}
+		List<Long> segments = listOffsets("", SEGMENT_SUFFIX);
+		if (!segments.isEmpty() && fromOffset < segments.get(0)) {
+			throw new IllegalStateException("events before offset " + segments.get(0)
+					+ " are compacted into a snapshot, replay from offset " + fromOffset + " is not possible");
+		}
+		for (int i = 0; i < segments.size(); i++) {
+			long baseOffset = segments.get(i);
+			boolean holdsRequestedEvents = i + 1 == segments.size() || segments.get(i + 1) > fromOffset;
+			if (baseOffset > activeBase || !holdsRequestedEvents) {
+				continue;
+			}
+			ByteBuffer view = baseOffset == activeBase ? activeView : mapSegment(baseOffset);
+			TradeEvent event;
+			while ((event = TradeEventCodec.read(view)) != null && event.getOffset() < upTo) {
+				if (event.getOffset() >= fromOffset) {
+					handler.onEvent(event);
+				}
+			}
+		}
+		return upTo;
+	}
+
+	/**
+	 * delivers the latest snapshot as SNAPSHOT events followed by every event
+	 * logged after it, i.e. the complete history in compacted form.
+	 *
+	 * @param handler receives the events.
+	 * @return offset of the first event that was not delivered, to continue from
+	 *         with {@link #replay(long, TradeEventHandler)}.
+	 */
+	public long rebuild(TradeEventHandler handler) {
+		checkEnabled();
+		checkInSync();
+		List<Long> snapshots = listOffsets(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		long fromOffset = 0;
+		if (!snapshots.isEmpty()) {
+			try {
+				fromOffset = SnapshotStore.read(snapshotPath(snapshots.get(snapshots.size() - 1)), handler);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return replay(fromOffset, handler);
+	}
+
+	/**
+	 * writes a compacted snapshot of everything logged so far, then deletes the
+	 * older snapshots and, if configured, the segments the snapshot covers. The
+	 * events are compacted with sorted runs on disk, so memory use is bounded by
+	 * {@code snapshot-run-size} records rather than the number of live records.
+	 * Nothing is written while the log is out of sync.
+	 */
+	public void snapshot() {
+		checkEnabled();
+		synchronized (snapshotLock) {
+			if (!inSync) {
+				return;
+			}
+			synchronized (this) {
+				active.force();
+			}
+			try (SnapshotCompactor compactor = new SnapshotCompactor(directory,
+					eventLogProperties.getSnapshotRunSize())) {
+				long upTo = rebuild(compactor);
+				if (upTo <= lastSnapshotOffset) {
+					return;
+				}
+				int count;
+				try (SnapshotStore.Writer writer = new SnapshotStore.Writer(snapshotPath(upTo), upTo)) {
+					compactor.writeTo(writer);
+					writer.commit();
+					count = writer.getCount();
+				}
+				lastSnapshotOffset = upTo;
+				deleteSnapshotsBefore(upTo);
+				if (eventLogProperties.isDeleteCompactedSegments()) {
+					deleteSegmentsBefore(upTo);
+				}
+				LOGGER_OBJ.info("stocktrade event log snapshot with " + count + " records written at offset " + upTo);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * replaces the log by a snapshot of the stocktrade collection. Appending
+	 * continues in a new segment before the collection is read, and as every
+	 * event carries the full record, replaying the events that are already
+	 * reflected in the snapshot yields the same state. The segments before the
+	 * snapshot are deleted, since they may miss events.
+	 */
+	void resync() {
+		synchronized (snapshotLock) {
+			long offset;
+			synchronized (this) {
+				if (active.getBaseOffset() != nextOffset) {
+					roll();
+				}
+				offset = nextOffset;
+				appendsSuspended = false;
+			}
+			try (SnapshotStore.Writer writer = new SnapshotStore.Writer(snapshotPath(offset), offset);
+					CloseableIterator<StockTrade> stockTrades = mongoTemplate.stream(new Query(), StockTrade.class)) {
+				while (stockTrades.hasNext()) {
+					writer.write(stockTrades.next());
+				}
+				writer.commit();
+				lastSnapshotOffset = offset;
+				deleteSnapshotsBefore(offset);
+				deleteSegmentsBefore(offset);
+				Files.deleteIfExists(directory.resolve(OUT_OF_SYNC_MARKER));
+				inSync = true;
+				LOGGER_OBJ.info("stocktrade event log snapshot with " + writer.getCount()
+						+ " records taken from the collection at offset " + offset);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * stops appending and schedules a resync, the caller holds the log lock.
+	 */
+	private void markOutOfSync(RuntimeException cause) {
+		LOGGER_OBJ.error("appending to the stocktrade event log failed at offset " + nextOffset
+				+ ", the log is resynchronised from the collection", cause);
+		appendsSuspended = true;
+		inSync = false;
+		try {
+			Files.write(directory.resolve(OUT_OF_SYNC_MARKER), new byte[0]);
+		} catch (IOException e) {
+			LOGGER_OBJ.error("stocktrade event log out of sync marker can't be written", e);
+		}
+		scheduleResync();
+	}
+
+	/**
+	 * resynchronises the log in the background. A failed attempt is retried on
+	 * the next write.
+	 */
+	private void scheduleResync() {
+		if (!resyncPending.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			snapshotExecutor.execute(() -> {
+				try {
+					resync();
+				} catch (RuntimeException e) {
+					synchronized (this) {
+						appendsSuspended = true;
+					}
+					LOGGER_OBJ.error("stocktrade event log resync failed", e);
+				} finally {
+					resyncPending.set(false);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			resyncPending.set(false);
+			LOGGER_OBJ.warn("stocktrade event log is closing, it is resynchronised on the next start");
+		}
+	}
+
+	private void scheduleSnapshotIfDue() {
+		long interval = eventLogProperties.getSnapshotIntervalEvents();
+		if (interval <= 0 || getNextOffset() - lastSnapshotOffset < interval
+				|| !snapshotPending.compareAndSet(false, true)) {
+			return;
+		}
+		snapshotExecutor.execute(() -> {
+			try {
+				snapshot();
+			} catch (RuntimeException e) {
+				LOGGER_OBJ.error("stocktrade event log snapshot failed", e);
+			} finally {
+				snapshotPending.set(false);
+			}
+		});
+	}
+
+	/**
+	 * closes the active segment and starts a new one at the next offset.
+	 */
+	private void roll() {
+		try {
+			active.close();
+			active = LogSegment.open(segmentPath(nextOffset), nextOffset, eventLogProperties.getSegmentSize());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void deleteSnapshotsBefore(long offset) throws IOException {
+		for (long snapshot : listOffsets(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+			if (snapshot < offset) {
+				Files.deleteIfExists(snapshotPath(snapshot));
+			}
+		}
+	}
+
+	/**
+	 * deletes the segments whose events all lie before the offset. The active
+	 * segment is never deleted.
+	 */
+	private void deleteSegmentsBefore(long offset) throws IOException {
+		List<Long> segments = listOffsets("", SEGMENT_SUFFIX);
+		for (int i = 0; i + 1 < segments.size() && segments.get(i + 1) <= offset; i++) {
+			Files.deleteIfExists(segmentPath(segments.get(i)));
+		}
+	}
+
+	private ByteBuffer mapSegment(long baseOffset) {
+		try {
+			return LogSegment.mapReadOnly(segmentPath(baseOffset));
+		} catch (NoSuchFileException e) {
+			throw new IllegalStateException("segment " + baseOffset + " was compacted while replaying", e);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * returns the offsets encoded in the names of the files with the given
+	 * prefix and suffix, in ascending order.
+	 */
+	private List<Long> listOffsets(String prefix, String suffix) {
+		List<Long> offsets = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.map(path -> path.getFileName().toString())
+					.filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+					.map(name -> name.substring(prefix.length(), name.length() - suffix.length()))
+					.filter(offset -> !offset.isEmpty() && offset.chars().allMatch(Character::isDigit))
+					.forEach(offset -> offsets.add(Long.parseLong(offset)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		Collections.sort(offsets);
+		return offsets;
+	}
+
+	private Path segmentPath(long baseOffset) {
+		return directory.resolve(String.format("%020d", baseOffset) + SEGMENT_SUFFIX);
+	}
+
+	private Path snapshotPath(long offset) {
+		return directory.resolve(SNAPSHOT_PREFIX + String.format("%020d", offset) + SNAPSHOT_SUFFIX);
+	}
+
+	private void checkEnabled() {
+		if (!isEnabled()) {
+			throw new IllegalStateException("stocktrade event log is not enabled");
+		}
+	}
+
+	private void checkInSync() {
+		if (!inSync) {
+			throw new IllegalStateException("stocktrade event log is out of sync until it is resynchronised");
+		}
+	}
+
+}
@@ -8,15 +8,19 @@ import org.springframework.hateoas.RepresentationModel;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonFormat.Shape;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 /**
- * Model class for stocktrade.
+ * Model class for stocktrade. The security and date fields form the shard key
+ * of the collection, and together with seq they make up the composite
+ * {@link StockTradeKey}. The id is a long so that generated ids can go beyond
+ * the int range, legacy int ids are read and matched unchanged.
  */
 @Document(collection = "stocktrade")
 public class StockTrade extends RepresentationModel<StockTrade> {
 
 	@Id
-	private int id;
+	private long id;
 	private String security;
 	@JsonFormat(shape = Shape.STRING, pattern = "dd-MM-yyyy")
 	private Date date;
@@ -26,12 +30,13 @@ public class StockTrade extends RepresentationModel<StockTrade> {
 	private double close;
 	private double volume;
 	private double adjClose;
+	private Long seq;
 
-	public int getId() {
+	public long getId() {
 		return id;
 	}
 
-	public void setId(int id) {
+	public void setId(long id) {
 		this.id = id;
 	}
 
@@ -99,10 +104,32 @@ public class StockTrade extends RepresentationModel<StockTrade> {
 		this.adjClose = adjClose;
 	}
 
+	@JsonIgnore
+	public Long getSeq() {
+		return seq;
+	}
+
+	public void setSeq(Long seq) {
+		this.seq = seq;
+	}
+
+	/**
+	 * returns the composite key of the record.
+	 * 
+	 * @return the composite key, or null when no sequence is assigned yet.
+	 */
+	public String getTradeKey() {
+		if (seq == null || security == null || date == null) {
+			return null;
+		}
+		return new StockTradeKey(security, date, seq).toString();
+	}
+
 	@Override
 	public String toString() {
 		return "StockTrade [id=" + id + ", security=" + security + ", date=" + date + ", open=" + open + ", high="
-				+ high + ", low=" + low + ", close=" + close + ", volume=" + volume + ", adjClose=" + adjClose + "]";
+				+ high + ", low=" + low + ", close=" + close + ", volume=" + volume + ", adjClose=" + adjClose
+				+ ", seq=" + seq + "]";
 	}
 
 }
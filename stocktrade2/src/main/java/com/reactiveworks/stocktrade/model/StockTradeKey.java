@@ -0,0 +1,93 @@
+package com.reactiveworks.stocktrade.model;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Composite key of a stocktrade record made of security, trade date and a
+ * per-security-per-day sequence. Its textual form is
+ * {@code SECURITY:yyyyMMdd:seq}.
+ */
+public class StockTradeKey {
+
+	private static final String SEPARATOR = ":";
+	private static final String DATE_PATTERN = "yyyyMMdd";
+
+	private final String security;
+	private final Date date;
+	private final long seq;
+
+	public StockTradeKey(String security, Date date, long seq) {
+		this.security = security;
+		this.date = date;
+		this.seq = seq;
+	}
+
+	public String getSecurity() {
+		return security;
+	}
+
+	public Date getDate() {
+		return date;
+	}
+
+	public long getSeq() {
+		return seq;
+	}
+
+	/**
+	 * returns the identifier of the sequence this key belongs to.
+	 *
+	 * @param security security of the stocktrade record.
+	 * @param date     trade date of the stocktrade record.
+	 * @return the sequence identifier in the form {@code SECURITY:yyyyMMdd}.
+	 */
+	public static String sequenceName(String security, Date date) {
+		return security + SEPARATOR + newDateFormat().format(date);
+	}
+
+	/**
+	 * parses the textual form of the key. The security may contain the
+	 * separator, the date has to be a valid calendar day with exactly eight
+	 * digits and the sequence has to consist of digits only.
+	 *
+	 * @param tradeKey key in the form {@code SECURITY:yyyyMMdd:seq}.
+	 * @return the parsed key.
+	 * @throws IllegalArgumentException when the key is malformed.
+	 */
+	public static StockTradeKey parse(String tradeKey) {
+		int seqSeparator = tradeKey.lastIndexOf(SEPARATOR);
+		int dateSeparator = seqSeparator > 0 ? tradeKey.lastIndexOf(SEPARATOR, seqSeparator - 1) : -1;
+		if (dateSeparator <= 0) {
+			throw new IllegalArgumentException("malformed stocktrade key " + tradeKey);
+		}
+		String datePart = tradeKey.substring(dateSeparator + 1, seqSeparator);
+		String seqPart = tradeKey.substring(seqSeparator + 1);
+		if (!datePart.matches("\\d{8}") || !seqPart.matches("\\d+")) {
+			throw new IllegalArgumentException("malformed stocktrade key " + tradeKey);
+		}
+		try {
+			String security = tradeKey.substring(0, dateSeparator);
+			Date date = newDateFormat().parse(datePart);
+			long seq = Long.parseLong(seqPart);
+			return new StockTradeKey(security, date, seq);
+		} catch (ParseException | NumberFormatException e) {
+			throw new IllegalArgumentException("malformed stocktrade key " + tradeKey, e);
+		}
+	}
+
+	private static SimpleDateFormat newDateFormat() {
+		SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN);
+		dateFormat.setLenient(false);
+		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return dateFormat;
+	}
+
+	@Override
+	public String toString() {
+		return sequenceName(security, date) + SEPARATOR + seq;
+	}
+
+}
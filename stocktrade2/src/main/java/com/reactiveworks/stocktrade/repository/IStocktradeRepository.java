@@ -1,16 +1,36 @@
 package com.reactiveworks.stocktrade.repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import com.reactiveworks.stocktrade.model.StockTrade;
 
 /**
- * repository for stocktrade.
+ * repository for stocktrade. The finders taking a security carry the shard key
+ * so that they are routed to a single shard. Writes go through MongoTemplate
+ * with the full shard key in their filter, see StockTradeService.
  */
-public interface IStocktradeRepository extends MongoRepository<StockTrade, Integer> {
+public interface IStocktradeRepository extends MongoRepository<StockTrade, Long> {
 
 	//public Page<StockTrade> findAll(Pageable pageable);
 
+	public Optional<StockTrade> findByIdAndSecurity(long id, String security);
+
+	public Page<StockTrade> findBySecurity(String security, Pageable pageable);
+
+	public Optional<StockTrade> findBySecurityAndDateAndSeq(String security, Date date, long seq);
+
+	/**
+	 * returns the records with the given ids, populated with the id only.
+	 */
+	@Query(value = "{ '_id' : { '$in' : ?0 } }", fields = "{ '_id' : 1 }")
+	public List<StockTrade> findIdsByIdIn(Collection<Long> ids);
+
 }
@@ -1,30 +1,68 @@
 package com.reactiveworks.stocktrade.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.reactiveworks.stocktrade.eventlog.TradeEvent;
+import com.reactiveworks.stocktrade.eventlog.TradeEventLog;
 import com.reactiveworks.stocktrade.model.StockTrade;
+import com.reactiveworks.stocktrade.model.StockTradeKey;
 import com.reactiveworks.stocktrade.repository.IStocktradeRepository;
+import com.reactiveworks.stocktrade.service.batch.BatchReport;
+import com.reactiveworks.stocktrade.service.batch.StockTradeBatchPipeline;
 import com.reactiveworks.stocktrade.service.exceptions.InsufficientResourceDetailsException;
 import com.reactiveworks.stocktrade.service.exceptions.StockTradeRecordNotFoundException;
-import com.reactiveworks.stocktrade.service.exceptions.StockTrdRecordAlreadyExistsException;;
+import com.reactiveworks.stocktrade.service.exceptions.StockTrdRecordAlreadyExistsException;
+import com.reactiveworks.stocktrade.sharding.ShardingProperties;
+import com.reactiveworks.stocktrade.sharding.StockTradeKeyGenerator;
 
 /**
- * This class provides stocktrade service.
+ * This class provides stocktrade service. Records are written through
+ * MongoTemplate with the id and the shard key (security and date) in the
+ * filter, so that every write is routed to a single shard once the collection
+ * is sharded.
+ * <p>
+ * A sharded collection only enforces unique ids per shard, as the id is not
+ * part of the shard key. Client supplied ids are checked by a lookup before
+ * they are inserted, which two concurrent requests with the same id and
+ * different securities can both pass. Ids are only unique across shards in the
+ * composite key mode with generated ids.
  */
 @Service
 public class StockTradeService {
 	private static final Logger LOGGER_OBJ = LoggerFactory.getLogger(StockTradeService.class);
 	@Autowired
 	private IStocktradeRepository stockTrdRepository;
+	@Autowired
+	private MongoTemplate mongoTemplate;
+	@Autowired
+	private StockTradeKeyGenerator keyGenerator;
+	@Autowired
+	private ShardingProperties shardingProperties;
+	@Autowired
+	private StockTradeBatchPipeline batchPipeline;
+	@Autowired
+	private TradeEventLog tradeEventLog;
 
 	/**
 	 * returns the stockTrade records from the database.
@@ -36,6 +74,22 @@ public class StockTradeService {
 	 *                                           present in the database.
 	 */
 	public List<StockTrade> getStockTrades(int pageNo, int pageSize) throws StockTradeRecordNotFoundException {
+		return getStockTrades(pageNo, pageSize, null);
+	}
+
+	/**
+	 * returns the stockTrade records of the given security from the database.
+	 * 
+	 * @param pageNo   number of the page to be displayed.
+	 * @param pageSize numbers of records required in the page.
+	 * @param security security of the records, routes the query to a single
+	 *                 shard. All securities are returned when it is null.
+	 * @return the stockTrade records from the database.
+	 * @throws StockTradeRecordNotFoundException when the stockTrade record is not
+	 *                                           present in the database.
+	 */
+	public List<StockTrade> getStockTrades(int pageNo, int pageSize, String security)
+			throws StockTradeRecordNotFoundException {
 		LOGGER_OBJ.debug("execution of getStockTrades() started");
 		List<StockTrade> stockTradesList;
 		if (pageNo > 0) {
@@ -43,7 +97,8 @@ public class StockTradeService {
 		}
 		Pageable pageable = PageRequest.of(pageNo, pageSize);
 		System.out.println("pageable "+pageable);
-		Page<StockTrade> pagedResult = stockTrdRepository.findAll(pageable);
+		Page<StockTrade> pagedResult = security == null ? stockTrdRepository.findAll(pageable)
+				: stockTrdRepository.findBySecurity(security, pageable);
 		if (pagedResult.hasContent()) {
 			stockTradesList = pagedResult.getContent();
 		} else {
@@ -56,7 +111,9 @@ public class StockTradeService {
 	}
 
 	/**
-	 * adds the stockTrade records into the database.
+	 * adds the stockTrade records into the database. Every invalid and duplicate
+	 * record of the list is reported, nothing is added when any record is
+	 * invalid.
 	 * 
 	 * @param stockTradesList list of the stockTrade records to be inserted into the
 	 *                        database.
@@ -70,32 +127,85 @@ public class StockTradeService {
 	public void addStockTrades(List<StockTrade> stockTradesList)
 			throws InsufficientResourceDetailsException, StockTrdRecordAlreadyExistsException {
 		LOGGER_OBJ.debug("execution of addStockTrades() started");
-		List<StockTrade> stockTradeObjects = new ArrayList<>();
-		List<Integer> duplicates = new ArrayList<Integer>();
-		for (StockTrade stockTradeObj : stockTradesList) {
+		BatchReport report = batchPipeline.process(stockTradesList, this::isValidStockTrdObj, this::saveStockTrades);
+		if (report.hasInvalidRecords()) {
+			LOGGER_OBJ.error("mandatory fields are not mentioned for " + report.getInvalidRecords().size()
+					+ " stocktrade object(s)");
+			List<String> details = new ArrayList<>(report.getInvalidRecords());
+			details.addAll(report.getDuplicateRecords());
+			throw new InsufficientResourceDetailsException(report.getInvalidRecords().size() + " of "
+					+ stockTradesList.size() + " stocktrade object(s) don't have the required fields", details);
+		}
+		if (report.hasDuplicates()) {
+			throw new StockTrdRecordAlreadyExistsException(
+					"stockTrade object with id(s) " + report.getDuplicateIds() + " is/are already available",
+					report.getDuplicateRecords());
+		}
 
-			if (isValidStockTrdObj(stockTradeObj) == false) {
-				LOGGER_OBJ.error("mandatory fields are not mentioned for the stocktrade object with id "
-						+ stockTradeObj.getId());
-				throw new InsufficientResourceDetailsException(
-						"stocktrade object with id " + stockTradeObj.getId() + " doesn't have the required fields");
-			}
+		LOGGER_OBJ.debug("execution of addStockTrades() completed");
+	}
+
+	/**
+	 * inserts a chunk of new stockTrade records, assigning the missing ids and
+	 * the composite keys first when the composite key mode is enabled.
+	 * 
+	 * @param stockTradeObjects the new stockTrade records.
+	 * @return the ids of the records that were stored concurrently since the
+	 *         pipeline checked them, they are skipped.
+	 */
+	private Set<Long> saveStockTrades(List<StockTrade> stockTradeObjects) {
+		if (shardingProperties.isCompositeKeyMode()) {
+			keyGenerator.assignIds(stockTradeObjects);
+			keyGenerator.assignKeys(stockTradeObjects);
+		}
+		Set<Long> storedIds = new HashSet<>();
+		tradeEventLog.writeApplied(TradeEvent.Type.INSERT, stockTradeObjects,
+				() -> insertNew(stockTradeObjects, storedIds));
+		return storedIds;
+	}
+
+	/**
+	 * inserts the records in order. The insert stops at the first duplicate key,
+	 * the records before it are stored; the duplicate is skipped and the insert
+	 * continues with the records after it.
+	 * 
+	 * @param storedIds collects the ids of the skipped records.
+	 * @return the inserted records.
+	 */
+	private List<StockTrade> insertNew(List<StockTrade> stockTradeObjects, Set<Long> storedIds) {
+		List<StockTrade> inserted = new ArrayList<>(stockTradeObjects.size());
+		List<StockTrade> remaining = stockTradeObjects;
+		while (!remaining.isEmpty()) {
 			try {
-				getStockTradeRecord(stockTradeObj.getId());
-				duplicates.add(stockTradeObj.getId());
+				mongoTemplate.insertAll(remaining);
+				inserted.addAll(remaining);
+				break;
+			} catch (DuplicateKeyException exp) {
+				int index = duplicateIndex(exp, remaining.size());
+				LOGGER_OBJ.warn("stockTrade object with id " + remaining.get(index).getId()
+						+ " was stored concurrently, it is skipped");
+				inserted.addAll(remaining.subList(0, index));
+				storedIds.add(remaining.get(index).getId());
+				remaining = remaining.subList(index + 1, remaining.size());
+			}
+		}
+		return inserted;
+	}
 
-			} catch (StockTradeRecordNotFoundException e) {
-				stockTradeObjects.add(stockTradeObj);
-				LOGGER_OBJ.info("stockTrade object with id " + stockTradeObj.getId() + " is valid object ");
+	/**
+	 * @return the index of the record that failed the insert with a duplicate key.
+	 */
+	private static int duplicateIndex(DuplicateKeyException exp, int size) {
+		if (exp.getCause() instanceof MongoBulkWriteException) {
+			List<BulkWriteError> errors = ((MongoBulkWriteException) exp.getCause()).getWriteErrors();
+			if (!errors.isEmpty()) {
+				return errors.get(0).getIndex();
 			}
 		}
-		stockTrdRepository.saveAll(stockTradeObjects);
-		if (duplicates.size() != 0) {
-			throw new StockTrdRecordAlreadyExistsException(
-					"stockTrade object with id(s) " + duplicates + " is/are already available");
+		if (size == 1) {
+			return 0;
 		}
-
-		LOGGER_OBJ.debug("execution of addStockTrades() completed");
+		throw exp;
 	}
 
 	/**
@@ -106,9 +216,25 @@ public class StockTradeService {
 	 * @throws StockTradeRecordNotFoundException when the stockTrade record is not
 	 *                                           present in the database.
 	 */
-	public StockTrade getStockTradeRecord(int id) throws StockTradeRecordNotFoundException {
+	public StockTrade getStockTradeRecord(long id) throws StockTradeRecordNotFoundException {
+		return getStockTradeRecord(id, null);
+	}
+
+	/**
+	 * Gets the stockTrade record from the database with the given id.
+	 * 
+	 * @param id       id of the stockTrade record to be fetched from the
+	 *                 database.
+	 * @param security security of the record, routes the query to a single
+	 *                 shard. The query is broadcast when it is null.
+	 * @return stockTrade record from the database with the given id.
+	 * @throws StockTradeRecordNotFoundException when the stockTrade record is not
+	 *                                           present in the database.
+	 */
+	public StockTrade getStockTradeRecord(long id, String security) throws StockTradeRecordNotFoundException {
 		LOGGER_OBJ.debug("execution of getStockTradeRecord() started");
-		StockTrade stockTradeObj = stockTrdRepository.findById(id).orElse(null);
+		StockTrade stockTradeObj = (security == null ? stockTrdRepository.findById(id)
+				: stockTrdRepository.findByIdAndSecurity(id, security)).orElse(null);
 		if (stockTradeObj == null) {
 			LOGGER_OBJ.error("stockTrade record with id " + id + " is not available");
 			throw new StockTradeRecordNotFoundException("stockTrade record with id " + id + " is not available");
@@ -117,6 +243,35 @@ public class StockTradeService {
 		return stockTradeObj;
 	}
 
+	/**
+	 * Gets the stockTrade record from the database with the given composite key.
+	 * 
+	 * @param tradeKey composite key in the form {@code SECURITY:yyyyMMdd:seq}.
+	 * @return stockTrade record from the database with the given key.
+	 * @throws StockTradeRecordNotFoundException when the key is malformed or the
+	 *                                           stockTrade record is not present
+	 *                                           in the database.
+	 */
+	public StockTrade getStockTradeRecordByKey(String tradeKey) throws StockTradeRecordNotFoundException {
+		LOGGER_OBJ.debug("execution of getStockTradeRecordByKey() started");
+		StockTradeKey key;
+		try {
+			key = StockTradeKey.parse(tradeKey);
+		} catch (IllegalArgumentException e) {
+			LOGGER_OBJ.error(e.getMessage());
+			throw new StockTradeRecordNotFoundException("stockTrade record with key " + tradeKey + " is not available",
+					e);
+		}
+		StockTrade stockTradeObj = stockTrdRepository
+				.findBySecurityAndDateAndSeq(key.getSecurity(), key.getDate(), key.getSeq()).orElse(null);
+		if (stockTradeObj == null) {
+			LOGGER_OBJ.error("stockTrade record with key " + tradeKey + " is not available");
+			throw new StockTradeRecordNotFoundException("stockTrade record with key " + tradeKey + " is not available");
+		}
+		LOGGER_OBJ.debug("execution of getStockTradeRecordByKey() completed");
+		return stockTradeObj;
+	}
+
 	/**
 	 * updates or adds the stockTrade record in/into the database.
 	 * 
@@ -126,20 +281,66 @@ public class StockTradeService {
 	 *                                              doesn't have the required
 	 *                                              fields.
 	 */
-	public void updateStockTrade(int id, StockTrade stockTradeObj) throws InsufficientResourceDetailsException {
+	public void updateStockTrade(long id, StockTrade stockTradeObj) throws InsufficientResourceDetailsException {
+		updateStockTrade(id, null, stockTradeObj);
+	}
+
+	/**
+	 * updates or adds the stockTrade record in/into the database.
+	 * 
+	 * @param id            id of the record to be updated/inserted.
+	 * @param security      current security of the record, routes the lookup to
+	 *                      a single shard. The lookup is broadcast when it is
+	 *                      null, or when no record with the id has that
+	 *                      security, before a new record is inserted.
+	 * @param stockTradeObj stockTrade object to be updated/inserted.
+	 * @throws InsufficientResourceDetailsException when the stockTrade object
+	 *                                              doesn't have the required
+	 *                                              fields.
+	 */
+	public void updateStockTrade(long id, String security, StockTrade stockTradeObj)
+			throws InsufficientResourceDetailsException {
 		LOGGER_OBJ.debug("execution of updateStockTrade() started");
 		stockTradeObj.setId(id);
-		try {
-			getStockTradeRecord(id);
-		} catch (StockTradeRecordNotFoundException e) {
+		while (!putStockTrade(id, security, stockTradeObj)) {
+			LOGGER_OBJ.debug("stockTrade record with id " + id + " changed concurrently, looking it up again");
+		}
+		LOGGER_OBJ.debug("execution of updateStockTrade() completed");
+	}
+
+	/**
+	 * looks up the stored record and replaces it, or inserts the stockTrade
+	 * object when there is none.
+	 * 
+	 * @return false when the stored record was deleted or its shard key changed
+	 *         after the lookup, nothing is written then.
+	 */
+	private boolean putStockTrade(long id, String security, StockTrade stockTradeObj)
+			throws InsufficientResourceDetailsException {
+		stockTradeObj.setSeq(null);
+		StockTrade stockTradeRecord = (security == null ? stockTrdRepository.findById(id)
+				: stockTrdRepository.findByIdAndSecurity(id, security)).orElse(null);
+		if (stockTradeRecord == null && security != null) {
+			// the record may be stored under another security, inserting would duplicate its id
+			stockTradeRecord = stockTrdRepository.findById(id).orElse(null);
+		}
+		if (stockTradeRecord == null) {
 			if (isValidStockTrdObj(stockTradeObj) == false) {
 				throw new InsufficientResourceDetailsException(
 						"stocktrade object with id " + stockTradeObj.getId() + " doesn't have the required fields");
 			}
-
+			assignKeyIfMissing(stockTradeObj);
+			tradeEventLog.write(TradeEvent.Type.INSERT, stockTradeObj, () -> mongoTemplate.insert(stockTradeObj));
+			return true;
 		}
-		stockTrdRepository.save(stockTradeObj);
-		LOGGER_OBJ.debug("execution of updateStockTrade() completed");
+		boolean sameShardKey = hasSameShardKey(stockTradeRecord, stockTradeObj);
+		if (sameShardKey) {
+			stockTradeObj.setSeq(stockTradeRecord.getSeq());
+		}
+		assignKeyIfMissing(stockTradeObj);
+		Query storedKey = byShardKey(stockTradeRecord);
+		return tradeEventLog.writeIfApplied(TradeEvent.Type.UPDATE, Collections.singletonList(stockTradeObj),
+				() -> replaceStockTrade(storedKey, sameShardKey, stockTradeObj));
 	}
 
 	/**
@@ -150,9 +351,29 @@ public class StockTradeService {
 	 * @throws StockTradeRecordNotFoundException when the stockTrade record with the
 	 *                                           given is not available.
 	 */
-	public void updateStockTradeDetails(int id, StockTrade stockTradeObj) throws StockTradeRecordNotFoundException {
+	public void updateStockTradeDetails(long id, StockTrade stockTradeObj) throws StockTradeRecordNotFoundException {
+		updateStockTradeDetails(id, null, stockTradeObj);
+	}
+
+	/**
+	 * updates the stockTrade record with the given id.
+	 * 
+	 * @param id            id of the stockTrade record to be updated.
+	 * @param security      current security of the record, routes the lookup to
+	 *                      a single shard. The lookup is broadcast when it is
+	 *                      null.
+	 * @param stockTradeObj stockTrade object with fields to be updated.
+	 * @throws StockTradeRecordNotFoundException when the stockTrade record with the
+	 *                                           given is not available, or was
+	 *                                           deleted or moved concurrently.
+	 */
+	public void updateStockTradeDetails(long id, String security, StockTrade stockTradeObj)
+			throws StockTradeRecordNotFoundException {
 		LOGGER_OBJ.debug("execution of updateStockTradeDetails() started");
-		StockTrade stockTradeRecord = getStockTradeRecord(id);
+		StockTrade stockTradeRecord = getStockTradeRecord(id, security);
+		Query storedKey = byShardKey(stockTradeRecord);
+		String oldSecurity = stockTradeRecord.getSecurity();
+		Date oldDate = stockTradeRecord.getDate();
 		if (stockTradeObj.getSecurity() != null) {
 			stockTradeRecord.setSecurity(stockTradeObj.getSecurity());
 		}
@@ -174,7 +395,16 @@ public class StockTradeService {
 		if (stockTradeObj.getAdjClose() != 0) {
 			stockTradeRecord.setAdjClose(stockTradeObj.getAdjClose());
 		}
-		stockTrdRepository.save(stockTradeRecord);
+		boolean sameShardKey = Objects.equals(oldSecurity, stockTradeRecord.getSecurity())
+				&& Objects.equals(oldDate, stockTradeRecord.getDate());
+		if (!sameShardKey) {
+			stockTradeRecord.setSeq(null);
+		}
+		assignKeyIfMissing(stockTradeRecord);
+		if (!tradeEventLog.writeIfApplied(TradeEvent.Type.UPDATE, Collections.singletonList(stockTradeRecord),
+				() -> replaceStockTrade(storedKey, sameShardKey, stockTradeRecord))) {
+			throw new StockTradeRecordNotFoundException("stockTrade record with id " + id + " is not available");
+		}
 		LOGGER_OBJ.debug("execution of updateStockTradeDetails() completed");
 	}
 
@@ -186,23 +416,106 @@ public class StockTradeService {
 	 *                                           given id doesn't exist in the
 	 *                                           database.
 	 */
-	public void deleteStockTrade(int id) throws StockTradeRecordNotFoundException {
+	public void deleteStockTrade(long id) throws StockTradeRecordNotFoundException {
+		deleteStockTrade(id, null);
+	}
+
+	/**
+	 * deletes the stockTrade record with the given id from the database.
+	 * 
+	 * @param id       id of the stockTrade record to be deleted.
+	 * @param security security of the record, routes the lookup to a single
+	 *                 shard. The lookup is broadcast when it is null.
+	 * @throws StockTradeRecordNotFoundException when the stockTrade record with the
+	 *                                           given id doesn't exist in the
+	 *                                           database.
+	 */
+	public void deleteStockTrade(long id, String security) throws StockTradeRecordNotFoundException {
 		LOGGER_OBJ.debug("execution of deleteStockTrade() started");
-		StockTrade stockTradeRecord = getStockTradeRecord(id);
-		stockTrdRepository.delete(stockTradeRecord);
+		StockTrade stockTradeRecord = getStockTradeRecord(id, security);
+		if (!tradeEventLog.writeIfApplied(TradeEvent.Type.DELETE, Collections.singletonList(stockTradeRecord),
+				() -> mongoTemplate.remove(byShardKey(stockTradeRecord), StockTrade.class).getDeletedCount() > 0)) {
+			throw new StockTradeRecordNotFoundException("stockTrade record with id " + id + " is not available");
+		}
 		LOGGER_OBJ.debug("execution of deleteStockTrade() completed");
 	}
 
 	/**
-	 * Checks whether the stockTrade object has all the required fields.
+	 * Replaces the stored stockTrade record. A record whose shard key changed is
+	 * deleted and inserted again, since the shard key of a stored document can't
+	 * be changed in place. The two writes are not atomic.
+	 * 
+	 * @param storedKey     filter on the id and shard key of the stored record.
+	 * @param sameShardKey  whether the replacement keeps the shard key.
+	 * @param stockTradeObj the replacement.
+	 * @return false when the stored record no longer matches the filter, because
+	 *         it was deleted or moved concurrently. Nothing is written then.
+	 */
+	private boolean replaceStockTrade(Query storedKey, boolean sameShardKey, StockTrade stockTradeObj) {
+		if (sameShardKey) {
+			Update update = new Update().set("open", stockTradeObj.getOpen()).set("high", stockTradeObj.getHigh())
+					.set("low", stockTradeObj.getLow()).set("close", stockTradeObj.getClose())
+					.set("volume", stockTradeObj.getVolume()).set("adjClose", stockTradeObj.getAdjClose());
+			if (stockTradeObj.getSeq() != null) {
+				update.set("seq", stockTradeObj.getSeq());
+			}
+			return mongoTemplate.updateFirst(storedKey, update, StockTrade.class).getMatchedCount() > 0;
+		}
+		if (mongoTemplate.remove(storedKey, StockTrade.class).getDeletedCount() == 0) {
+			return false;
+		}
+		mongoTemplate.insert(stockTradeObj);
+		return true;
+	}
+
+	/**
+	 * Builds the filter on the id and shard key of the stockTrade record.
+	 * 
+	 * @param stockTrdObj the stored stockTrade record.
+	 * @return the filter matching exactly that record.
+	 */
+	private static Query byShardKey(StockTrade stockTrdObj) {
+		return Query.query(Criteria.where("_id").is(stockTrdObj.getId()).and("security")
+				.is(stockTrdObj.getSecurity()).and("date").is(stockTrdObj.getDate()));
+	}
+
+	/**
+	 * Checks whether both records have the same security and date, i.e. the same
+	 * shard key and key sequence.
+	 * 
+	 * @param stockTradeRecord the stored stockTrade record.
+	 * @param stockTradeObj    the stockTrade object replacing it.
+	 * @return true if security and date are unchanged otherwise returns false.
+	 */
+	private boolean hasSameShardKey(StockTrade stockTradeRecord, StockTrade stockTradeObj) {
+		return Objects.equals(stockTradeRecord.getSecurity(), stockTradeObj.getSecurity())
+				&& Objects.equals(stockTradeRecord.getDate(), stockTradeObj.getDate());
+	}
+
+	/**
+	 * Assigns a composite key to the stockTrade object when the composite key
+	 * mode is enabled and the object doesn't have one yet.
+	 * 
+	 * @param stockTrdObj the stockTrade object to be keyed.
+	 */
+	private void assignKeyIfMissing(StockTrade stockTrdObj) {
+		if (shardingProperties.isCompositeKeyMode() && stockTrdObj.getSeq() == null
+				&& stockTrdObj.getSecurity() != null && stockTrdObj.getDate() != null) {
+			keyGenerator.assignKeys(Collections.singletonList(stockTrdObj));
+		}
+	}
+
+	/**
+	 * Checks whether the stockTrade object has all the required fields. The id is
+	 * optional in the composite key mode, where missing ids are generated.
 	 * 
 	 * @param stockTrdObj the stockTrade object to be validated.
 	 * @return true if the object is valid otherwise returns false.
 	 */
 	private boolean isValidStockTrdObj(StockTrade stockTrdObj) {
 		boolean isValid = false;
-		System.out.println(stockTrdObj);
-		if (stockTrdObj.getAdjClose() != 0 && stockTrdObj.getId() != 0 && stockTrdObj.getSecurity() != null
+		boolean hasId = stockTrdObj.getId() != 0 || shardingProperties.isCompositeKeyMode();
+		if (stockTrdObj.getAdjClose() != 0 && hasId && stockTrdObj.getSecurity() != null
 				&& stockTrdObj.getDate() != null && stockTrdObj.getOpen() != 0 && stockTrdObj.getHigh() != 0
 				&& stockTrdObj.getLow() != 0 && stockTrdObj.getClose() != 0 && stockTrdObj.getVolume() != 0) {
 			isValid = true;
@@ -0,0 +1,60 @@
+package com.reactiveworks.stocktrade.service.batch;
+
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration of the pipeline that validates and stores POSTed stocktrade
+ * batches. Startup fails when a pool size or the chunk size isn't positive.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "stocktrade.batch")
+public class BatchPipelineProperties {
+
+	@Positive
+	private int validationParallelism = Runtime.getRuntime().availableProcessors();
+	@Positive
+	private int ioParallelism = 4;
+	@Positive
+	private int chunkSize = 500;
+	@PositiveOrZero
+	private int parallelThreshold = 1000;
+
+	public int getValidationParallelism() {
+		return validationParallelism;
+	}
+
+	public void setValidationParallelism(int validationParallelism) {
+		this.validationParallelism = validationParallelism;
+	}
+
+	public int getIoParallelism() {
+		return ioParallelism;
+	}
+
+	public void setIoParallelism(int ioParallelism) {
+		this.ioParallelism = ioParallelism;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+	}
+
+}
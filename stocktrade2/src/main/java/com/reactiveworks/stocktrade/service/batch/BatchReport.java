@@ -0,0 +1,60 @@
+package com.reactiveworks.stocktrade.service.batch;
+
+import java.util.List;
+
+/**
+ * Outcome of a stocktrade batch run through the {@link StockTradeBatchPipeline}.
+ */
+public class BatchReport {
+
+	private final List<String> invalidRecords;
+	private final List<Long> duplicateIds;
+	private final List<String> duplicateRecords;
+	private final int writtenRecords;
+
+	public BatchReport(List<String> invalidRecords, List<Long> duplicateIds, List<String> duplicateRecords,
+			int writtenRecords) {
+		this.invalidRecords = invalidRecords;
+		this.duplicateIds = duplicateIds;
+		this.duplicateRecords = duplicateRecords;
+		this.writtenRecords = writtenRecords;
+	}
+
+	/**
+	 * @return one description per record without the required fields.
+	 */
+	public List<String> getInvalidRecords() {
+		return invalidRecords;
+	}
+
+	/**
+	 * @return ids of the records that are already stored or repeated in the
+	 *         batch.
+	 */
+	public List<Long> getDuplicateIds() {
+		return duplicateIds;
+	}
+
+	/**
+	 * @return one description per duplicate record.
+	 */
+	public List<String> getDuplicateRecords() {
+		return duplicateRecords;
+	}
+
+	/**
+	 * @return number of records written to the database.
+	 */
+	public int getWrittenRecords() {
+		return writtenRecords;
+	}
+
+	public boolean hasInvalidRecords() {
+		return !invalidRecords.isEmpty();
+	}
+
+	public boolean hasDuplicates() {
+		return !duplicateIds.isEmpty();
+	}
+
+}
@@ -0,0 +1,229 @@
+package com.reactiveworks.stocktrade.service.batch;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+import com.reactiveworks.stocktrade.repository.IStocktradeRepository;
+
+/**
+ * Validates and stores a batch of stocktrade records in stages:
+ * <ol>
+ * <li>all records are validated, in parallel on a dedicated fork-join pool for
+ * large batches, and ids repeated within the batch are detected;</li>
+ * <li>the valid records are split in chunks and every chunk is checked for
+ * already stored ids with a single query;</li>
+ * <li>each checked chunk is written while the next chunks are still being
+ * checked.</li>
+ * </ol>
+ * Every invalid and duplicate record is reported instead of stopping at the
+ * first one, including the records the writer finds stored concurrently after
+ * the check. Nothing is written when the batch has invalid records. Records
+ * with id 0 are left to the writer to give an id and are never duplicates.
+ */
+@Component
+public class StockTradeBatchPipeline {
+	private static final Logger LOGGER_OBJ = LoggerFactory.getLogger(StockTradeBatchPipeline.class);
+
+	@Autowired
+	private IStocktradeRepository stockTrdRepository;
+	@Autowired
+	private BatchPipelineProperties batchProperties;
+	private ForkJoinPool validationPool;
+	private ExecutorService ioPool;
+
+	@PostConstruct
+	public void start() {
+		validationPool = new ForkJoinPool(batchProperties.getValidationParallelism());
+		ioPool = Executors.newFixedThreadPool(batchProperties.getIoParallelism());
+	}
+
+	@PreDestroy
+	public void stop() {
+		validationPool.shutdown();
+		ioPool.shutdown();
+	}
+
+	/**
+	 * runs the batch through the pipeline.
+	 *
+	 * @param stockTradesList the stocktrade records to be stored.
+	 * @param validator       checks whether a record has the required fields.
+	 * @param writer          stores a chunk of valid, new records and returns the
+	 *                        ids of the records it skipped because they were
+	 *                        stored meanwhile. It is called from the pipeline
+	 *                        threads, one chunk at a time.
+	 * @return the invalid and duplicate records of the batch.
+	 */
+	public BatchReport process(List<StockTrade> stockTradesList, Predicate<StockTrade> validator,
+			Function<List<StockTrade>, Set<Long>> writer) {
+		LOGGER_OBJ.debug("execution of process() started");
+		BitSet invalid = new BitSet(stockTradesList.size());
+		List<String> invalidRecords = new ArrayList<>();
+		for (int index : findInvalid(stockTradesList, validator)) {
+			invalid.set(index);
+			invalidRecords.add(describeInvalid(index, stockTradesList.get(index)));
+		}
+		List<Long> duplicateIds = new ArrayList<>();
+		List<String> duplicateRecords = new ArrayList<>();
+		List<StockTrade> candidates = new ArrayList<>(stockTradesList.size());
+		Set<Long> batchIds = new HashSet<>();
+		for (int index = invalid.nextClearBit(0); index < stockTradesList.size(); index = invalid
+				.nextClearBit(index + 1)) {
+			StockTrade stockTradeObj = stockTradesList.get(index);
+			if (stockTradeObj.getId() == 0 || batchIds.add(stockTradeObj.getId())) {
+				candidates.add(stockTradeObj);
+			} else {
+				duplicateIds.add(stockTradeObj.getId());
+				duplicateRecords
+						.add("stockTrade object with id " + stockTradeObj.getId() + " is repeated in the request");
+			}
+		}
+
+		boolean write = invalidRecords.isEmpty();
+		int chunkSize = batchProperties.getChunkSize();
+		List<List<StockTrade>> chunks = new ArrayList<>();
+		List<CompletableFuture<Set<Long>>> storedIds = new ArrayList<>();
+		CompletableFuture<Integer> written = CompletableFuture.completedFuture(0);
+		for (int from = 0; from < candidates.size(); from += chunkSize) {
+			List<StockTrade> chunk = candidates.subList(from, Math.min(from + chunkSize, candidates.size()));
+			CompletableFuture<Set<Long>> stored = CompletableFuture.supplyAsync(() -> findStoredIds(chunk),
+					ioPool);
+			chunks.add(chunk);
+			storedIds.add(stored);
+			if (write) {
+				written = written.thenCombineAsync(stored, (count, ids) -> count + writeNew(chunk, ids, writer),
+						ioPool);
+			}
+		}
+		int writtenRecords = await(written);
+
+		for (int i = 0; i < chunks.size(); i++) {
+			Set<Long> ids = await(storedIds.get(i));
+			for (StockTrade stockTradeObj : chunks.get(i)) {
+				if (ids.contains(stockTradeObj.getId())) {
+					duplicateIds.add(stockTradeObj.getId());
+					duplicateRecords
+							.add("stockTrade object with id " + stockTradeObj.getId() + " is already available");
+				}
+			}
+		}
+		LOGGER_OBJ.info(stockTradesList.size() + " stockTrade objects processed, " + invalidRecords.size()
+				+ " invalid, " + duplicateIds.size() + " duplicate, " + writtenRecords + " written");
+		LOGGER_OBJ.debug("execution of process() completed");
+		return new BatchReport(invalidRecords, duplicateIds, duplicateRecords, writtenRecords);
+	}
+
+	/**
+	 * validates every record, in parallel when the batch is large enough.
+	 *
+	 * @return the indexes of the invalid records, in ascending order.
+	 */
+	private int[] findInvalid(List<StockTrade> stockTradesList, Predicate<StockTrade> validator) {
+		boolean parallel = stockTradesList.size() >= batchProperties.getParallelThreshold();
+		Callable<int[]> validation = () -> {
+			IntStream indexes = IntStream.range(0, stockTradesList.size());
+			return (parallel ? indexes.parallel() : indexes).filter(i -> {
+				StockTrade stockTradeObj = stockTradesList.get(i);
+				return stockTradeObj == null || !validator.test(stockTradeObj);
+			}).toArray();
+		};
+		if (!parallel) {
+			try {
+				return validation.call();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return await(validationPool.submit(validation));
+	}
+
+	private static String describeInvalid(int index, StockTrade stockTradeObj) {
+		if (stockTradeObj == null) {
+			return "stocktrade object at index " + index + " is empty";
+		}
+		return "stocktrade object at index " + index + " with id " + stockTradeObj.getId()
+				+ " doesn't have the required fields";
+	}
+
+	private Set<Long> findStoredIds(List<StockTrade> chunk) {
+		List<Long> ids = new ArrayList<>(chunk.size());
+		for (StockTrade stockTradeObj : chunk) {
+			if (stockTradeObj.getId() != 0) {
+				ids.add(stockTradeObj.getId());
+			}
+		}
+		Set<Long> storedIds = new HashSet<>();
+		if (ids.isEmpty()) {
+			return storedIds;
+		}
+		for (StockTrade stored : stockTrdRepository.findIdsByIdIn(ids)) {
+			storedIds.add(stored.getId());
+		}
+		return storedIds;
+	}
+
+	/**
+	 * writes the records of the chunk that aren't stored yet. The ids the writer
+	 * skipped are added to the stored ids of the chunk.
+	 *
+	 * @return the number of written records.
+	 */
+	private static int writeNew(List<StockTrade> chunk, Set<Long> storedIds,
+			Function<List<StockTrade>, Set<Long>> writer) {
+		List<StockTrade> newRecords = new ArrayList<>(chunk.size());
+		for (StockTrade stockTradeObj : chunk) {
+			if (!storedIds.contains(stockTradeObj.getId())) {
+				newRecords.add(stockTradeObj);
+			}
+		}
+		if (newRecords.isEmpty()) {
+			return 0;
+		}
+		Set<Long> skippedIds = writer.apply(newRecords);
+		storedIds.addAll(skippedIds);
+		return newRecords.size() - skippedIds.size();
+	}
+
+	private static <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("stockTrade batch processing is interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+}
@@ -1,5 +1,8 @@
 package com.reactiveworks.stocktrade.service.exceptions;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
@@ -10,26 +13,45 @@ public class InsufficientResourceDetailsException extends Exception {
 	 * 
 	 */
 	private static final long serialVersionUID = 1L;
+	private final List<String> details;
 
 	public InsufficientResourceDetailsException() {
 		super();
+		this.details = Collections.emptyList();
 	}
 
 	public InsufficientResourceDetailsException(String message, Throwable cause, boolean enableSuppression,
 			boolean writableStackTrace) {
 		super(message, cause, enableSuppression, writableStackTrace);
+		this.details = Collections.emptyList();
 	}
 
 	public InsufficientResourceDetailsException(String message, Throwable cause) {
 		super(message, cause);
+		this.details = Collections.emptyList();
 	}
 
 	public InsufficientResourceDetailsException(String message) {
 		super(message);
+		this.details = Collections.emptyList();
 	}
 
 	public InsufficientResourceDetailsException(Throwable cause) {
 		super(cause);
+		this.details = Collections.emptyList();
+	}
+
+	/**
+	 * @param message summary of the problem.
+	 * @param details one entry per offending stocktrade record.
+	 */
+	public InsufficientResourceDetailsException(String message, List<String> details) {
+		super(message);
+		this.details = Collections.unmodifiableList(details);
+	}
+
+	public List<String> getDetails() {
+		return details;
 	}
 
 }
@@ -1,36 +1,58 @@
 package com.reactiveworks.stocktrade.service.exceptions;
 
+import java.util.Collections;
+import java.util.List;
+
 public class StockTrdRecordAlreadyExistsException extends Exception {
 
 	/**
 	 * 
 	 */
 	private static final long serialVersionUID = 1L;
+	private final List<String> details;
 
 	public StockTrdRecordAlreadyExistsException() {
 		super();
+		this.details = Collections.emptyList();
 		// TODO Auto-generated constructor stub
 	}
 
 	public StockTrdRecordAlreadyExistsException(String message, Throwable cause, boolean enableSuppression,
 			boolean writableStackTrace) {
 		super(message, cause, enableSuppression, writableStackTrace);
+		this.details = Collections.emptyList();
 		// TODO Auto-generated constructor stub
 	}
 
 	public StockTrdRecordAlreadyExistsException(String message, Throwable cause) {
 		super(message, cause);
+		this.details = Collections.emptyList();
 		// TODO Auto-generated constructor stub
 	}
 
 	public StockTrdRecordAlreadyExistsException(String message) {
 		super(message);
+		this.details = Collections.emptyList();
 		// TODO Auto-generated constructor stub
 	}
 
 	public StockTrdRecordAlreadyExistsException(Throwable cause) {
 		super(cause);
+		this.details = Collections.emptyList();
 		// TODO Auto-generated constructor stub
 	}
 
+	/**
+	 * @param message summary of the problem.
+	 * @param details one entry per offending stocktrade record.
+	 */
+	public StockTrdRecordAlreadyExistsException(String message, List<String> details) {
+		super(message);
+		this.details = Collections.unmodifiableList(details);
+	}
+
+	public List<String> getDetails() {
+		return details;
+	}
+
 }
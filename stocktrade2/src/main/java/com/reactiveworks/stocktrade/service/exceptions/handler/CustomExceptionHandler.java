@@ -3,6 +3,7 @@ package com.reactiveworks.stocktrade.service.exceptions.handler;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -44,6 +45,7 @@ public class CustomExceptionHandler extends ResponseEntityExceptionHandler {
 	public final ResponseEntity<ErrorResponse> handleInsufficientResourceDetailsException(InsufficientResourceDetailsException exp) {
 		List<String> details = new ArrayList<>();
 		details.add(exp.getLocalizedMessage());
+		details.addAll(exp.getDetails());
 		ErrorResponse error = new ErrorResponse("id, security, date, open, high, low, close, volume, adjClose are required fields", details);
 		return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
 	}
@@ -58,8 +60,23 @@ public class CustomExceptionHandler extends ResponseEntityExceptionHandler {
 	public final ResponseEntity<ErrorResponse> handleStockTrdRecordAlreadyExistsException(StockTrdRecordAlreadyExistsException exp) {
 		List<String> details = new ArrayList<>();
 		details.add(exp.getLocalizedMessage());
+		details.addAll(exp.getDetails());
 		ErrorResponse error = new ErrorResponse("duplicate record", details);
 		return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
 	}
 
+	/**
+	 * Exception handler method for DuplicateKeyException, raised when a record
+	 * with the same id was inserted concurrently. It is reported like
+	 * StockTrdRecordAlreadyExistsException.
+	 * 
+	 * @param exp DuplicateKeyException.
+	 * @return the response for the handled exception.
+	 */
+	@ExceptionHandler(DuplicateKeyException.class)
+	public final ResponseEntity<ErrorResponse> handleDuplicateKeyException(DuplicateKeyException exp) {
+		return handleStockTrdRecordAlreadyExistsException(
+				new StockTrdRecordAlreadyExistsException("stockTrade record is already available", exp));
+	}
+
 }
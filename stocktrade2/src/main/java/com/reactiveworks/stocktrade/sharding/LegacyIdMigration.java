@@ -0,0 +1,72 @@
+package com.reactiveworks.stocktrade.sharding;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.reactiveworks.stocktrade.eventlog.TradeEvent;
+import com.reactiveworks.stocktrade.eventlog.TradeEventLog;
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+/**
+ * Migrates records that were stored with only the legacy int id by assigning
+ * them a composite key. It runs in batches when
+ * {@code stocktrade.sharding.migrate-legacy-ids} is set and can be restarted
+ * safely, since only records without a sequence are picked up. The int _id
+ * values themselves are kept: they are read into the long id and Mongo matches
+ * them numerically, so a long id filter finds them without rewriting _id.
+ */
+@Component
+@Order(2)
+@ConditionalOnProperty(prefix = "stocktrade.sharding", name = "migrate-legacy-ids", havingValue = "true")
+public class LegacyIdMigration implements ApplicationRunner {
+	private static final Logger LOGGER_OBJ = LoggerFactory.getLogger(LegacyIdMigration.class);
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+	@Autowired
+	private StockTradeKeyGenerator keyGenerator;
+	@Autowired
+	private ShardingProperties shardingProperties;
+	@Autowired
+	private TradeEventLog tradeEventLog;
+
+	@Override
+	public void run(ApplicationArguments args) {
+		LOGGER_OBJ.debug("execution of run() started");
+		Query query = Query.query(Criteria.where("seq").exists(false).and("security").ne(null).and("date").ne(null))
+				.with(Sort.by("_id"))
+				.limit(shardingProperties.getMigrationBatchSize());
+		long migrated = 0;
+		List<StockTrade> batch = mongoTemplate.find(query, StockTrade.class);
+		while (!batch.isEmpty()) {
+			keyGenerator.assignKeys(batch);
+			for (StockTrade stockTradeObj : batch) {
+				Query byId = Query.query(Criteria.where("_id").is(stockTradeObj.getId())
+						.and("security").is(stockTradeObj.getSecurity()).and("date").is(stockTradeObj.getDate())
+						.and("seq").exists(false));
+				tradeEventLog.writeIfApplied(TradeEvent.Type.UPDATE, Collections.singletonList(stockTradeObj),
+						() -> mongoTemplate.updateFirst(byId, Update.update("seq", stockTradeObj.getSeq()),
+								StockTrade.class).getModifiedCount() > 0);
+			}
+			migrated += batch.size();
+			LOGGER_OBJ.info(migrated + " legacy stockTrade records migrated to composite keys");
+			batch = mongoTemplate.find(query, StockTrade.class);
+		}
+		LOGGER_OBJ.debug("execution of run() completed");
+	}
+
+}
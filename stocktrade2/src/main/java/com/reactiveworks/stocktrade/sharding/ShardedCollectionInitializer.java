@@ -0,0 +1,66 @@
+package com.reactiveworks.stocktrade.sharding;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoDatabase;
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+/**
+ * Shards the stocktrade collection on {@link StockTradeIndexes#shardKey()} on
+ * startup when {@code stocktrade.sharding.enabled} is set. The application has
+ * to be connected to a mongos router for this to succeed. The indexes the shard
+ * key needs are created first, whatever {@code stocktrade.startup.index-creation}
+ * is set to, because sharding a non-empty collection fails without them.
+ * Ids are no longer unique across shards once the collection is sharded, see
+ * {@link ShardingProperties.KeyMode}.
+ */
+@Component
+@Order(1)
+@ConditionalOnProperty(prefix = "stocktrade.sharding", name = "enabled", havingValue = "true")
+public class ShardedCollectionInitializer implements ApplicationRunner {
+	private static final Logger LOGGER_OBJ = LoggerFactory.getLogger(ShardedCollectionInitializer.class);
+	private static final int ALREADY_SHARDED = 20;
+	private static final int ALREADY_INITIALIZED = 23;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Override
+	public void run(ApplicationArguments args) {
+		LOGGER_OBJ.debug("execution of run() started");
+		String collection = mongoTemplate.getCollectionName(StockTrade.class);
+		String database = mongoTemplate.getDb().getName();
+		MongoDatabase admin = mongoTemplate.getMongoDbFactory().getDb("admin");
+		Document shardKey = StockTradeIndexes.shardKey();
+		StockTradeIndexes.ensureIndexes(mongoTemplate, true);
+		try {
+			admin.runCommand(new Document("enableSharding", database));
+		} catch (MongoCommandException e) {
+			if (e.getErrorCode() != ALREADY_INITIALIZED) {
+				throw e;
+			}
+			LOGGER_OBJ.info("sharding is already enabled for database " + database);
+		}
+		try {
+			admin.runCommand(new Document("shardCollection", database + "." + collection).append("key", shardKey));
+			LOGGER_OBJ.info("collection " + collection + " is sharded with key " + shardKey.toJson());
+		} catch (MongoCommandException e) {
+			if (e.getErrorCode() != ALREADY_SHARDED) {
+				throw e;
+			}
+			LOGGER_OBJ.info("collection " + collection + " is already sharded");
+		}
+		LOGGER_OBJ.debug("execution of run() completed");
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.reactiveworks.stocktrade.sharding;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of the stocktrade key mode and shard key.
+ */
+@Component
+@ConfigurationProperties(prefix = "stocktrade.sharding")
+public class ShardingProperties {
+
+	/**
+	 * LEGACY requires a client supplied id on every record. COMPOSITE makes the
+	 * id optional, generating ids above the int range for records without one,
+	 * and assigns a security + date + sequence key to every inserted record.
+	 * <p>
+	 * The shard key doesn't include the id, so a sharded collection only keeps
+	 * ids unique per shard. Sharding is only safe against duplicate ids in
+	 * COMPOSITE mode with the ids left to the generator.
+	 */
+	public enum KeyMode {
+		LEGACY, COMPOSITE
+	}
+
+	private KeyMode keyMode = KeyMode.LEGACY;
+	private boolean enabled = false;
+	private boolean migrateLegacyIds = false;
+	private int migrationBatchSize = 500;
+
+	public KeyMode getKeyMode() {
+		return keyMode;
+	}
+
+	public void setKeyMode(KeyMode keyMode) {
+		this.keyMode = keyMode;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isMigrateLegacyIds() {
+		return migrateLegacyIds;
+	}
+
+	public void setMigrateLegacyIds(boolean migrateLegacyIds) {
+		this.migrateLegacyIds = migrateLegacyIds;
+	}
+
+	public int getMigrationBatchSize() {
+		return migrationBatchSize;
+	}
+
+	public void setMigrationBatchSize(int migrationBatchSize) {
+		this.migrationBatchSize = migrationBatchSize;
+	}
+
+	public boolean isCompositeKeyMode() {
+		return keyMode == KeyMode.COMPOSITE;
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.reactiveworks.stocktrade.sharding;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+/**
+ * Indexes of the stocktrade collection that can't be declared on
+ * {@link StockTrade}. The composite key index is unique but partial, as legacy
+ * records don't have a sequence until they are migrated. The shard key index
+ * is a separate plain index because a partial index can't back a shard key.
+ */
+public final class StockTradeIndexes {
+
+	public static final String COMPOSITE_KEY_INDEX = "security_date_seq";
+	public static final String SHARD_KEY_INDEX = "security_date";
+
+	private StockTradeIndexes() {
+	}
+
+	/**
+	 * returns the shard key of the stocktrade collection. Securities are spread
+	 * over the shards by range and the history of a single security can still
+	 * be split by date.
+	 *
+	 * @return the shard key document.
+	 */
+	public static Document shardKey() {
+		return new Document("security", 1).append("date", 1);
+	}
+
+	public static IndexDefinition shardKeyIndex() {
+		return new CompoundIndexDefinition(shardKey()).named(SHARD_KEY_INDEX);
+	}
+
+	public static IndexDefinition compositeKeyIndex() {
+		return new CompoundIndexDefinition(new Document("security", 1).append("date", 1).append("seq", 1))
+				.named(COMPOSITE_KEY_INDEX).unique().partial(PartialIndexFilter.of(Criteria.where("seq").exists(true)));
+	}
+
+	/**
+	 * creates the composite key index, and the shard key index when requested.
+	 * Existing indexes are left as they are.
+	 *
+	 * @param mongoTemplate template of the stocktrade database.
+	 * @param shardKeyIndex whether the shard key index is created as well.
+	 */
+	public static void ensureIndexes(MongoTemplate mongoTemplate, boolean shardKeyIndex) {
+		IndexOperations indexOps = mongoTemplate.indexOps(StockTrade.class);
+		if (shardKeyIndex) {
+			indexOps.ensureIndex(shardKeyIndex());
+		}
+		indexOps.ensureIndex(compositeKeyIndex());
+	}
+
+}
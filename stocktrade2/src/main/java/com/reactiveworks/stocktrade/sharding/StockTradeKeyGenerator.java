@@ -0,0 +1,115 @@
+package com.reactiveworks.stocktrade.sharding;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+import com.reactiveworks.stocktrade.model.StockTradeKey;
+
+/**
+ * Assigns the sequence part of the composite {@link StockTradeKey} and the ids
+ * of records that are inserted without one. One counter document is kept per
+ * security and trade date, so sequences never contend across securities.
+ */
+@Component
+public class StockTradeKeyGenerator {
+	private static final Logger LOGGER_OBJ = LoggerFactory.getLogger(StockTradeKeyGenerator.class);
+	static final String SEQUENCE_COLLECTION = "stocktrade_sequences";
+	private static final String SEQ_FIELD = "seq";
+	private static final String ID_SEQUENCE = "_stocktrade_id";
+	/**
+	 * generated ids start above the int range, so they never clash with the
+	 * client supplied legacy ids.
+	 */
+	static final long FIRST_GENERATED_ID = Integer.MAX_VALUE + 1L;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	/**
+	 * assigns a sequence to every stockTrade record that doesn't have one yet.
+	 * Records sharing a security and date reserve their sequences in a single
+	 * round trip.
+	 * 
+	 * @param stockTradesList stockTrade records to be keyed, each with security
+	 *                        and date set.
+	 */
+	public void assignKeys(List<StockTrade> stockTradesList) {
+		LOGGER_OBJ.debug("execution of assignKeys() started");
+		Map<String, List<StockTrade>> bySequence = new LinkedHashMap<>();
+		for (StockTrade stockTradeObj : stockTradesList) {
+			if (stockTradeObj.getSeq() == null) {
+				String sequenceName = StockTradeKey.sequenceName(stockTradeObj.getSecurity(), stockTradeObj.getDate());
+				List<StockTrade> group = bySequence.get(sequenceName);
+				if (group == null) {
+					group = new ArrayList<>();
+					bySequence.put(sequenceName, group);
+				}
+				group.add(stockTradeObj);
+			}
+		}
+		for (Map.Entry<String, List<StockTrade>> entry : bySequence.entrySet()) {
+			List<StockTrade> group = entry.getValue();
+			long last = reserve(entry.getKey(), group.size());
+			long next = last - group.size() + 1;
+			for (StockTrade stockTradeObj : group) {
+				stockTradeObj.setSeq(next++);
+			}
+		}
+		LOGGER_OBJ.debug("execution of assignKeys() completed");
+	}
+
+	/**
+	 * assigns an id to every stockTrade record that doesn't have one yet, i.e.
+	 * whose id is 0. The ids of a batch are reserved in a single round trip.
+	 * 
+	 * @param stockTradesList stockTrade records to be given an id.
+	 */
+	public void assignIds(List<StockTrade> stockTradesList) {
+		LOGGER_OBJ.debug("execution of assignIds() started");
+		int count = 0;
+		for (StockTrade stockTradeObj : stockTradesList) {
+			if (stockTradeObj.getId() == 0) {
+				count++;
+			}
+		}
+		if (count > 0) {
+			long next = FIRST_GENERATED_ID + reserve(ID_SEQUENCE, count) - count;
+			for (StockTrade stockTradeObj : stockTradesList) {
+				if (stockTradeObj.getId() == 0) {
+					stockTradeObj.setId(next++);
+				}
+			}
+		}
+		LOGGER_OBJ.debug("execution of assignIds() completed");
+	}
+
+	/**
+	 * reserves a block of sequence numbers.
+	 * 
+	 * @param sequenceName name of the sequence.
+	 * @param count        number of sequence numbers to reserve.
+	 * @return the last reserved sequence number.
+	 */
+	private long reserve(String sequenceName, int count) {
+		Query query = Query.query(Criteria.where("_id").is(sequenceName));
+		Update update = new Update().inc(SEQ_FIELD, (long) count);
+		Document counter = mongoTemplate.findAndModify(query, update,
+				FindAndModifyOptions.options().returnNew(true).upsert(true), Document.class, SEQUENCE_COLLECTION);
+		return ((Number) counter.get(SEQ_FIELD)).longValue();
+	}
+
+}
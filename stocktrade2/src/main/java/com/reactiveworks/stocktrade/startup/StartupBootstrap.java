@@ -0,0 +1,97 @@
+package com.reactiveworks.stocktrade.startup;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.reactiveworks.stocktrade.sharding.StockTradeIndexes;
+import com.reactiveworks.stocktrade.startup.StartupProperties.BootstrapMode;
+
+/**
+ * Creates the Mongo indexes and warms up the Mongo connection and the lazily
+ * initialized web beans according to {@link StartupProperties}. MongoTemplate
+ * is looked up on demand so that this component doesn't defeat lazy
+ * initialization.
+ */
+@Component
+public class StartupBootstrap {
+	private static final Logger LOGGER_OBJ = LoggerFactory.getLogger(StartupBootstrap.class);
+
+	@Autowired
+	private StartupProperties startupProperties;
+	@Autowired
+	private ObjectProvider<MongoTemplate> mongoTemplate;
+
+	@EventListener
+	public void onStarted(ApplicationStartedEvent event) {
+		if (startupProperties.getIndexCreation() == BootstrapMode.EAGER) {
+			timed("index creation", this::createIndexes);
+		}
+		if (startupProperties.getConnectionWarmup() == BootstrapMode.EAGER) {
+			timed("connection warm-up", () -> warmUp(event.getApplicationContext()));
+		}
+	}
+
+	@EventListener
+	public void onReady(ApplicationReadyEvent event) {
+		ConfigurableApplicationContext context = event.getApplicationContext();
+		if (startupProperties.isExitOnReady()) {
+			LOGGER_OBJ.info("exiting after startup as stocktrade.startup.exit-on-ready is set");
+			System.exit(SpringApplication.exit(context));
+		}
+		boolean createIndexes = startupProperties.getIndexCreation() == BootstrapMode.BACKGROUND;
+		boolean warmUp = startupProperties.getConnectionWarmup() == BootstrapMode.BACKGROUND;
+		if (!createIndexes && !warmUp) {
+			return;
+		}
+		Thread bootstrap = new Thread(() -> {
+			if (warmUp) {
+				timed("background connection warm-up", () -> warmUp(context));
+			}
+			if (createIndexes) {
+				timed("background index creation", this::createIndexes);
+			}
+		}, "stocktrade-startup-bootstrap");
+		bootstrap.setDaemon(true);
+		bootstrap.start();
+	}
+
+	/**
+	 * opens a pooled Mongo connection and instantiates the controllers together
+	 * with everything they depend on.
+	 */
+	private void warmUp(ConfigurableApplicationContext context) {
+		mongoTemplate.getObject().executeCommand(new Document("ping", 1));
+		context.getBeansWithAnnotation(RestController.class);
+	}
+
+	/**
+	 * creates the stocktrade indexes, see {@link StockTradeIndexes}. The mapped
+	 * types don't declare indexes, so there is nothing left for
+	 * {@code spring.data.mongodb.auto-index-creation} to create.
+	 */
+	private void createIndexes() {
+		StockTradeIndexes.ensureIndexes(mongoTemplate.getObject(), false);
+	}
+
+	private static void timed(String phase, Runnable task) {
+		long start = System.nanoTime();
+		try {
+			task.run();
+			LOGGER_OBJ.info(phase + " took " + (System.nanoTime() - start) / 1000000 + " ms");
+		} catch (RuntimeException e) {
+			LOGGER_OBJ.error(phase + " failed", e);
+		}
+	}
+
+}
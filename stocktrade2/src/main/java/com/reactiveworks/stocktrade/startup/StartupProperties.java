@@ -0,0 +1,60 @@
+package com.reactiveworks.stocktrade.startup;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of the startup work done besides creating the application
+ * context.
+ */
+@Component
+@ConfigurationProperties(prefix = "stocktrade.startup")
+public class StartupProperties {
+
+	/**
+	 * EAGER does the work before the application reports ready, BACKGROUND does
+	 * it on a separate thread once the application is ready and DISABLED skips
+	 * it.
+	 */
+	public enum BootstrapMode {
+		EAGER, BACKGROUND, DISABLED
+	}
+
+	private BootstrapMode indexCreation = BootstrapMode.EAGER;
+	private BootstrapMode connectionWarmup = BootstrapMode.DISABLED;
+	private boolean report = false;
+	private boolean exitOnReady = false;
+
+	public BootstrapMode getIndexCreation() {
+		return indexCreation;
+	}
+
+	public void setIndexCreation(BootstrapMode indexCreation) {
+		this.indexCreation = indexCreation;
+	}
+
+	public BootstrapMode getConnectionWarmup() {
+		return connectionWarmup;
+	}
+
+	public void setConnectionWarmup(BootstrapMode connectionWarmup) {
+		this.connectionWarmup = connectionWarmup;
+	}
+
+	public boolean isReport() {
+		return report;
+	}
+
+	public void setReport(boolean report) {
+		this.report = report;
+	}
+
+	public boolean isExitOnReady() {
+		return exitOnReady;
+	}
+
+	public void setExitOnReady(boolean exitOnReady) {
+		this.exitOnReady = exitOnReady;
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.reactiveworks.stocktrade.startup;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringApplicationRunListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Logs how long every startup phase took when {@code stocktrade.startup.report}
+ * is set. It is registered in META-INF/spring.factories, as run listeners are
+ * created before the application context exists.
+ * <p>
+ * It runs before the listener publishing the application events, so the report
+ * is logged even when {@code stocktrade.startup.exit-on-ready} exits on the
+ * ready event. The property is therefore only read once the application is
+ * running, because the configuration files are loaded by that other listener.
+ * For the same reason the last phase includes the listeners of the started
+ * event, which do the EAGER index creation and warm-up of
+ * {@link StartupBootstrap} and log their own times.
+ */
+public class StartupTimeReport implements SpringApplicationRunListener, Ordered {
+	private static final Logger LOGGER_OBJ = LoggerFactory.getLogger(StartupTimeReport.class);
+
+	private final Map<String, Long> phaseEnds = new LinkedHashMap<>();
+	private long last;
+
+	public StartupTimeReport(SpringApplication application, String[] args) {
+		last = ManagementFactory.getRuntimeMXBean().getStartTime();
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public void starting() {
+		mark("jvm startup until SpringApplication.run");
+	}
+
+	@Override
+	public void environmentPrepared(ConfigurableEnvironment environment) {
+		mark("environment preparation");
+	}
+
+	@Override
+	public void contextPrepared(ConfigurableApplicationContext context) {
+		mark("context creation");
+	}
+
+	@Override
+	public void contextLoaded(ConfigurableApplicationContext context) {
+		mark("source loading");
+	}
+
+	@Override
+	public void started(ConfigurableApplicationContext context) {
+		mark("context refresh (bean creation, repositories, web server)");
+	}
+
+	@Override
+	public void running(ConfigurableApplicationContext context) {
+		mark("started listeners and application runners");
+		if (context.getEnvironment().getProperty("stocktrade.startup.report", Boolean.class, false)) {
+			long total = 0;
+			StringBuilder report = new StringBuilder("startup time by phase:");
+			for (Map.Entry<String, Long> phase : phaseEnds.entrySet()) {
+				total += phase.getValue();
+				report.append(String.format("%n  %6d ms  %s", phase.getValue(), phase.getKey()));
+			}
+			report.append(String.format("%n  %6d ms  total since jvm start", total));
+			LOGGER_OBJ.info(report.toString());
+		}
+	}
+
+	@Override
+	public void failed(ConfigurableApplicationContext context, Throwable exception) {
+	}
+
+	private void mark(String phase) {
+		long now = System.currentTimeMillis();
+		phaseEnds.put(phase, now - last);
+		last = now;
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.reactiveworks.stocktrade.eventlog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+class LogSegmentTest {
+
+	private static final int SEGMENT_SIZE = 4096;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void reopeningRecoversTheWritePosition() throws IOException {
+		Path path = directory.resolve("segment.log");
+		try (LogSegment segment = LogSegment.open(path, 10, SEGMENT_SIZE)) {
+			assertThat(segment.append(event(10))).isTrue();
+			assertThat(segment.append(event(11))).isTrue();
+		}
+
+		try (LogSegment segment = LogSegment.open(path, 10, SEGMENT_SIZE)) {
+			assertThat(segment.getNextOffset()).isEqualTo(12);
+			assertThat(segment.append(event(12))).isTrue();
+			assertThat(offsets(segment.readView())).containsExactly(10L, 11L, 12L);
+		}
+	}
+
+	@Test
+	void truncatedLastRecordIsOverwrittenAfterReopening() throws IOException {
+		Path path = directory.resolve("segment.log");
+		int endOfSecond;
+		try (LogSegment segment = LogSegment.open(path, 0, SEGMENT_SIZE)) {
+			segment.append(event(0));
+			segment.append(event(1));
+			endOfSecond = segment.readView().limit();
+			segment.append(event(2));
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(endOfSecond + TradeEventCodec.recordSize(event(2)) / 2);
+		}
+
+		try (LogSegment segment = LogSegment.open(path, 0, SEGMENT_SIZE)) {
+			assertThat(segment.getNextOffset()).isEqualTo(2);
+			assertThat(offsets(segment.readView())).containsExactly(0L, 1L);
+			assertThat(segment.append(event(2))).isTrue();
+		}
+
+		try (LogSegment segment = LogSegment.open(path, 0, SEGMENT_SIZE)) {
+			assertThat(offsets(segment.readView())).containsExactly(0L, 1L, 2L);
+		}
+	}
+
+	@Test
+	void fullSegmentRejectsTheEvent() throws IOException {
+		try (LogSegment segment = LogSegment.open(directory.resolve("segment.log"), 0, SEGMENT_SIZE)) {
+			long offset = 0;
+			while (segment.append(event(offset))) {
+				offset++;
+			}
+			assertThat(segment.getNextOffset()).isEqualTo(offset);
+			assertThat(offsets(segment.readView())).hasSize((int) offset);
+		}
+	}
+
+	private static List<Long> offsets(ByteBuffer view) {
+		List<Long> offsets = new ArrayList<>();
+		TradeEvent event;
+		while ((event = TradeEventCodec.read(view)) != null) {
+			offsets.add(event.getOffset());
+		}
+		return offsets;
+	}
+
+	private static TradeEvent event(long offset) {
+		StockTrade stockTrade = new StockTrade();
+		stockTrade.setId(offset + 1);
+		stockTrade.setSecurity("AAPL");
+		return new TradeEvent(offset, 0, TradeEvent.Type.INSERT, stockTrade);
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.reactiveworks.stocktrade.eventlog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+class TradeEventCodecTest {
+
+	@Test
+	void fullRecordRoundTrips() {
+		StockTrade stockTrade = new StockTrade();
+		stockTrade.setId(Integer.MAX_VALUE + 5L);
+		stockTrade.setSecurity("ÄPFEL");
+		stockTrade.setDate(new Date(1262563200000L));
+		stockTrade.setOpen(10.5);
+		stockTrade.setHigh(11.25);
+		stockTrade.setLow(9.75);
+		stockTrade.setClose(11);
+		stockTrade.setVolume(123456);
+		stockTrade.setAdjClose(10.8);
+		stockTrade.setSeq(3L);
+
+		TradeEvent read = roundTrip(new TradeEvent(42, 1000, TradeEvent.Type.UPDATE, stockTrade));
+
+		assertThat(read.getOffset()).isEqualTo(42);
+		assertThat(read.getTimestamp()).isEqualTo(1000);
+		assertThat(read.getType()).isEqualTo(TradeEvent.Type.UPDATE);
+		assertThat(read.getStockTrade()).usingRecursiveComparison().isEqualTo(stockTrade);
+	}
+
+	@Test
+	void missingSecurityDateAndSeqRoundTripAsNull() {
+		StockTrade stockTrade = new StockTrade();
+		stockTrade.setId(7);
+
+		TradeEvent read = roundTrip(new TradeEvent(0, 0, TradeEvent.Type.DELETE, stockTrade));
+
+		assertThat(read.getStockTrade().getSecurity()).isNull();
+		assertThat(read.getStockTrade().getDate()).isNull();
+		assertThat(read.getStockTrade().getSeq()).isNull();
+		assertThat(read.getStockTrade()).usingRecursiveComparison().isEqualTo(stockTrade);
+	}
+
+	@Test
+	void emptySecurityIsNotReadAsNull() {
+		StockTrade stockTrade = new StockTrade();
+		stockTrade.setSecurity("");
+
+		TradeEvent read = roundTrip(new TradeEvent(0, 0, TradeEvent.Type.INSERT, stockTrade));
+
+		assertThat(read.getStockTrade().getSecurity()).isEmpty();
+	}
+
+	@Test
+	void tornRecordIsNotReadAndLeavesThePosition() {
+		StockTrade stockTrade = new StockTrade();
+		stockTrade.setSecurity("AAPL");
+		TradeEvent event = new TradeEvent(0, 0, TradeEvent.Type.INSERT, stockTrade);
+		ByteBuffer buffer = ByteBuffer.allocate(TradeEventCodec.recordSize(event));
+		TradeEventCodec.write(event, buffer);
+		buffer.put(buffer.position() - 1, (byte) 1);
+		buffer.flip();
+
+		assertThat(TradeEventCodec.read(buffer)).isNull();
+		assertThat(buffer.position()).isZero();
+	}
+
+	private static TradeEvent roundTrip(TradeEvent event) {
+		ByteBuffer buffer = ByteBuffer.allocate(TradeEventCodec.recordSize(event));
+		TradeEventCodec.write(event, buffer);
+		assertThat(buffer.hasRemaining()).isFalse();
+		buffer.flip();
+		TradeEvent read = TradeEventCodec.read(buffer);
+		assertThat(buffer.hasRemaining()).isFalse();
+		return read;
+	}
+
+}
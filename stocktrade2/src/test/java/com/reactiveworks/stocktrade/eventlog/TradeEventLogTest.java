@@ -0,0 +1,373 @@
+package com.reactiveworks.stocktrade.eventlog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+class TradeEventLogTest {
+
+	@TempDir
+	Path directory;
+
+	private final EventLogProperties properties = new EventLogProperties();
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	/** stands in for the stocktrade collection the log is bootstrapped from. */
+	private final Map<Long, StockTrade> collection = Collections.synchronizedMap(new LinkedHashMap<>());
+	private volatile boolean mongoDown;
+	private final List<TradeEventLog> openLogs = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		properties.setEnabled(true);
+		properties.setDirectory(directory.toString());
+		properties.setSegmentSize(1024);
+		properties.setSnapshotIntervalEvents(0);
+		when(mongoTemplate.stream(any(Query.class), eq(StockTrade.class))).thenAnswer(invocation -> {
+			if (mongoDown) {
+				throw new DataAccessResourceFailureException("mongo is down");
+			}
+			synchronized (collection) {
+				return closeable(new ArrayList<>(collection.values()).iterator());
+			}
+		});
+	}
+
+	@AfterEach
+	void closeLogs() throws Exception {
+		for (TradeEventLog log : openLogs) {
+			log.close();
+		}
+	}
+
+	@Test
+	void newLogStartsFromASnapshotOfTheCollection() throws IOException {
+		store(stockTrade(1, 10));
+		store(stockTrade(2, 20));
+
+		TradeEventLog log = openLog();
+
+		List<TradeEvent> events = new ArrayList<>();
+		assertThat(log.rebuild(events::add)).isZero();
+		assertThat(events).extracting(TradeEvent::getType).containsOnly(TradeEvent.Type.SNAPSHOT);
+		assertThat(closes(events)).containsExactly(entry(1, 10), entry(2, 20));
+	}
+
+	@Test
+	void replaySpansRolledSegments() throws IOException {
+		TradeEventLog log = openLog();
+		for (int id = 1; id <= 40; id++) {
+			insert(log, stockTrade(id, id));
+		}
+		assertThat(segmentCount()).isGreaterThan(3);
+
+		List<TradeEvent> events = new ArrayList<>();
+		assertThat(log.replay(0, events::add)).isEqualTo(40);
+		assertThat(events).extracting(TradeEvent::getOffset).containsExactlyElementsOf(range(0, 40));
+
+		List<TradeEvent> tail = new ArrayList<>();
+		log.replay(25, tail::add);
+		assertThat(tail).extracting(TradeEvent::getOffset).containsExactlyElementsOf(range(25, 40));
+	}
+
+	@Test
+	void rebuildAfterCompactionDeliversTheLatestState() throws IOException {
+		properties.setSnapshotRunSize(3);
+		TradeEventLog log = openLog();
+		for (int id = 1; id <= 10; id++) {
+			insert(log, stockTrade(id, id));
+		}
+		for (int id = 2; id <= 10; id += 2) {
+			update(log, stockTrade(id, id * 100));
+		}
+		delete(log, stockTrade(3, 3));
+		delete(log, stockTrade(8, 800));
+
+		log.snapshot();
+		insert(log, stockTrade(11, 11));
+		update(log, stockTrade(1, 1000));
+
+		Map<Long, Double> state = new LinkedHashMap<>();
+		long next = log.rebuild(event -> apply(state, event));
+
+		assertThat(next).isEqualTo(log.getNextOffset());
+		Map<Long, Double> expected = new HashMap<>();
+		for (StockTrade stockTrade : collection.values()) {
+			expected.put(stockTrade.getId(), stockTrade.getClose());
+		}
+		assertThat(state).isEqualTo(expected).doesNotContainKeys(3L, 8L).containsEntry(1L, 1000.0);
+		assertThat(Files.list(directory).map(path -> path.getFileName().toString()))
+				.noneMatch(name -> name.endsWith(".tmp"));
+	}
+
+	@Test
+	void replayFromACompactedOffsetThrows() throws IOException {
+		TradeEventLog log = openLog();
+		for (int id = 1; id <= 40; id++) {
+			insert(log, stockTrade(id, id));
+		}
+		log.snapshot();
+
+		assertThatThrownBy(() -> log.replay(0, event -> {
+		})).isInstanceOf(IllegalStateException.class).hasMessageContaining("compacted");
+		List<TradeEvent> events = new ArrayList<>();
+		log.rebuild(events::add);
+		assertThat(closes(events)).hasSize(40);
+	}
+
+	@Test
+	void failedMongoWriteIsNotLogged() throws IOException {
+		TradeEventLog log = openLog();
+
+		assertThatThrownBy(() -> log.write(TradeEvent.Type.INSERT, stockTrade(1, 1), () -> {
+			throw new DataAccessResourceFailureException("write failed");
+		})).isInstanceOf(DataAccessResourceFailureException.class);
+		assertThat(log.writeIfApplied(TradeEvent.Type.UPDATE, Collections.singletonList(stockTrade(1, 1)),
+				() -> false)).isFalse();
+
+		assertThat(log.getNextOffset()).isZero();
+	}
+
+	@Test
+	void onlyTheAppliedRecordsOfAPartialWriteAreLogged() throws IOException {
+		TradeEventLog log = openLog();
+		List<StockTrade> stockTrades = Arrays.asList(stockTrade(1, 1), stockTrade(2, 2), stockTrade(3, 3));
+
+		List<StockTrade> applied = log.writeApplied(TradeEvent.Type.INSERT, stockTrades,
+				() -> Arrays.asList(stockTrades.get(0), stockTrades.get(2)));
+
+		assertThat(applied).extracting(StockTrade::getId).containsExactly(1L, 3L);
+		List<TradeEvent> events = new ArrayList<>();
+		log.replay(0, events::add);
+		assertThat(closes(events)).containsExactly(entry(1, 1), entry(3, 3));
+	}
+
+	@Test
+	void failedAppendIsResynchronisedFromTheCollection() throws Exception {
+		TradeEventLog log = openLog();
+		insert(log, stockTrade(1, 1));
+		StockTrade tooLarge = stockTrade(2, 2);
+		tooLarge.setSecurity(String.join("", Collections.nCopies(2000, "X")));
+
+		insert(log, tooLarge);
+		insert(log, stockTrade(3, 3));
+		closeLog(log);
+
+		assertThat(directory.resolve("OUT_OF_SYNC")).doesNotExist();
+		TradeEventLog reopened = openLog();
+		assertThat(reopened.isInSync()).isTrue();
+		Map<Long, Double> state = new LinkedHashMap<>();
+		reopened.rebuild(event -> apply(state, event));
+		assertThat(state).containsOnlyKeys(1L, 2L, 3L);
+	}
+
+	@Test
+	void logStaysOutOfSyncUntilAResyncSucceeds() throws Exception {
+		TradeEventLog log = openLog();
+		insert(log, stockTrade(1, 1));
+		mongoDown = true;
+		StockTrade tooLarge = stockTrade(2, 2);
+		tooLarge.setSecurity(String.join("", Collections.nCopies(2000, "X")));
+		insert(log, tooLarge);
+		closeLog(log);
+
+		assertThat(log.isInSync()).isFalse();
+		assertThatThrownBy(() -> log.rebuild(event -> {
+		})).isInstanceOf(IllegalStateException.class).hasMessageContaining("out of sync");
+		assertThat(directory.resolve("OUT_OF_SYNC")).exists();
+
+		mongoDown = false;
+		TradeEventLog reopened = openLog();
+		Map<Long, Double> state = new LinkedHashMap<>();
+		reopened.rebuild(event -> apply(state, event));
+		assertThat(state).containsOnlyKeys(1L, 2L);
+		assertThat(directory.resolve("OUT_OF_SYNC")).doesNotExist();
+	}
+
+	@Test
+	void eventsOfARecordAreLoggedInTheOrderOfItsWrites() throws Exception {
+		TradeEventLog log = openLog();
+		Map<Long, List<Double>> applied = new HashMap<>();
+		ExecutorService writers = Executors.newFixedThreadPool(4);
+		List<Future<?>> results = new ArrayList<>();
+		for (int writer = 0; writer < 4; writer++) {
+			int first = writer * 1000;
+			results.add(writers.submit(() -> {
+				for (int i = 0; i < 200; i++) {
+					StockTrade stockTrade = stockTrade(1 + i % 3, first + i);
+					log.write(TradeEvent.Type.UPDATE, stockTrade, () -> {
+						synchronized (applied) {
+							applied.computeIfAbsent(stockTrade.getId(), id -> new ArrayList<>())
+									.add(stockTrade.getClose());
+						}
+					});
+				}
+			}));
+		}
+		for (Future<?> result : results) {
+			result.get();
+		}
+		writers.shutdown();
+
+		Map<Long, List<Double>> logged = new HashMap<>();
+		log.replay(0, event -> logged.computeIfAbsent(event.getStockTrade().getId(), id -> new ArrayList<>())
+				.add(event.getStockTrade().getClose()));
+		assertThat(logged).isEqualTo(applied);
+	}
+
+	@Test
+	void updateRacingADeleteIsOnlyLoggedWhenItApplied() throws Exception {
+		TradeEventLog log = openLog();
+		ExecutorService writers = Executors.newFixedThreadPool(2);
+		for (int id = 1; id <= 200; id++) {
+			insert(log, stockTrade(id, id));
+			StockTrade patched = stockTrade(id, id * 10);
+			StockTrade deleted = collection.get((long) id);
+			CountDownLatch start = new CountDownLatch(1);
+			Future<Boolean> patch = writers.submit(() -> {
+				start.await();
+				return log.writeIfApplied(TradeEvent.Type.UPDATE, Collections.singletonList(patched),
+						() -> collection.replace(patched.getId(), patched) != null);
+			});
+			Future<Boolean> delete = writers.submit(() -> {
+				start.await();
+				return log.writeIfApplied(TradeEvent.Type.DELETE, Collections.singletonList(deleted),
+						() -> collection.remove(deleted.getId()) != null);
+			});
+			start.countDown();
+			assertThat(delete.get()).isTrue();
+			patch.get();
+		}
+		writers.shutdown();
+
+		Map<Long, Double> state = new LinkedHashMap<>();
+		log.rebuild(event -> apply(state, event));
+		assertThat(collection).isEmpty();
+		assertThat(state).isEmpty();
+	}
+
+	private TradeEventLog openLog() throws IOException {
+		TradeEventLog log = new TradeEventLog();
+		ReflectionTestUtils.setField(log, "eventLogProperties", properties);
+		ReflectionTestUtils.setField(log, "mongoTemplate", mongoTemplate);
+		log.open();
+		openLogs.add(log);
+		return log;
+	}
+
+	/**
+	 * closes the log, which waits for a scheduled resync to finish.
+	 */
+	private void closeLog(TradeEventLog log) throws Exception {
+		openLogs.remove(log);
+		log.close();
+	}
+
+	private void insert(TradeEventLog log, StockTrade stockTrade) {
+		log.write(TradeEvent.Type.INSERT, stockTrade, () -> store(stockTrade));
+	}
+
+	private void update(TradeEventLog log, StockTrade stockTrade) {
+		log.write(TradeEvent.Type.UPDATE, stockTrade, () -> store(stockTrade));
+	}
+
+	private void delete(TradeEventLog log, StockTrade stockTrade) {
+		log.write(TradeEvent.Type.DELETE, stockTrade, () -> collection.remove(stockTrade.getId()));
+	}
+
+	private void store(StockTrade stockTrade) {
+		collection.put(stockTrade.getId(), stockTrade);
+	}
+
+	private long segmentCount() throws IOException {
+		return Files.list(directory).filter(path -> path.toString().endsWith(".log")).count();
+	}
+
+	private static void apply(Map<Long, Double> state, TradeEvent event) {
+		if (event.getType() == TradeEvent.Type.DELETE) {
+			state.remove(event.getStockTrade().getId());
+		} else {
+			state.put(event.getStockTrade().getId(), event.getStockTrade().getClose());
+		}
+	}
+
+	private static List<Map.Entry<Long, Double>> closes(List<TradeEvent> events) {
+		List<Map.Entry<Long, Double>> closes = new ArrayList<>();
+		for (TradeEvent event : events) {
+			closes.add(entry(event.getStockTrade().getId(), event.getStockTrade().getClose()));
+		}
+		return closes;
+	}
+
+	private static Map.Entry<Long, Double> entry(long id, double close) {
+		return new SimpleImmutableEntry<>(id, close);
+	}
+
+	private static List<Long> range(long from, long to) {
+		List<Long> range = new ArrayList<>();
+		for (long offset = from; offset < to; offset++) {
+			range.add(offset);
+		}
+		return range;
+	}
+
+	private static StockTrade stockTrade(long id, double close) {
+		StockTrade stockTrade = new StockTrade();
+		stockTrade.setId(id);
+		stockTrade.setSecurity("AAPL");
+		stockTrade.setClose(close);
+		return stockTrade;
+	}
+
+	private static <T> CloseableIterator<T> closeable(Iterator<T> iterator) {
+		return new CloseableIterator<T>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public T next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void close() {
+			}
+
+		};
+	}
+
+}
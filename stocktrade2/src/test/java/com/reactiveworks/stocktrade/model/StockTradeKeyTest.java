@@ -0,0 +1,56 @@
+package com.reactiveworks.stocktrade.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class StockTradeKeyTest {
+
+	/** 2020-01-02T00:00:00Z */
+	private static final long JAN_2_2020 = 1577923200000L;
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+	@Test
+	void parsesTheTextualForm() {
+		StockTradeKey key = StockTradeKey.parse("AAPL:20200102:7");
+
+		assertThat(key.getSecurity()).isEqualTo("AAPL");
+		assertThat(key.getDate()).isEqualTo(new Date(JAN_2_2020));
+		assertThat(key.getSeq()).isEqualTo(7);
+		assertThat(key).hasToString("AAPL:20200102:7");
+	}
+
+	@Test
+	void securityMayContainTheSeparator() {
+		StockTradeKey key = StockTradeKey.parse("BRK:A:20200102:1");
+
+		assertThat(key.getSecurity()).isEqualTo("BRK:A");
+		assertThat(key.getDate()).isEqualTo(new Date(JAN_2_2020));
+		assertThat(StockTradeKey.parse(key.toString())).hasToString("BRK:A:20200102:1");
+	}
+
+	@Test
+	void sequenceNameUsesTheUtcDay() {
+		assertThat(StockTradeKey.sequenceName("AAPL", new Date(JAN_2_2020))).isEqualTo("AAPL:20200102");
+		assertThat(StockTradeKey.sequenceName("AAPL", new Date(JAN_2_2020 + DAY_MILLIS - 1)))
+				.isEqualTo("AAPL:20200102");
+		assertThat(StockTradeKey.sequenceName("AAPL", new Date(JAN_2_2020 + DAY_MILLIS)))
+				.isEqualTo("AAPL:20200103");
+		assertThat(StockTradeKey.sequenceName("AAPL", new Date(JAN_2_2020 - 1))).isEqualTo("AAPL:20200101");
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "AAPL", "AAPL:1", ":20200102:1", "AAPL:20200102:", "AAPL:20200102:x",
+			"AAPL:20200102:-1", "AAPL:20200102:+1", "AAPL:20200102:99999999999999999999", "AAPL:20200230:1",
+			"AAPL:20201301:1", "AAPL:2020012:1", "AAPL:202001021:1", "AAPL:20200102x:1", "AAPL:2020-01-02:1" })
+	void rejectsMalformedKeys(String tradeKey) {
+		assertThatThrownBy(() -> StockTradeKey.parse(tradeKey)).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining(tradeKey);
+	}
+
+}
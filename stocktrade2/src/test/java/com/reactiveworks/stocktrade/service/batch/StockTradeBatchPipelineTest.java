@@ -0,0 +1,216 @@
+package com.reactiveworks.stocktrade.service.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+import com.reactiveworks.stocktrade.repository.IStocktradeRepository;
+
+@ExtendWith(MockitoExtension.class)
+class StockTradeBatchPipelineTest {
+
+	@Mock
+	private IStocktradeRepository stockTrdRepository;
+	@Spy
+	private BatchPipelineProperties batchProperties = new BatchPipelineProperties();
+	@InjectMocks
+	private StockTradeBatchPipeline pipeline;
+
+	private final List<List<StockTrade>> writtenChunks = Collections.synchronizedList(new ArrayList<>());
+	private final Function<List<StockTrade>, Set<Long>> writer = chunk -> {
+		writtenChunks.add(new ArrayList<>(chunk));
+		return Collections.emptySet();
+	};
+
+	@AfterEach
+	void stopPipeline() {
+		pipeline.stop();
+	}
+
+	@Test
+	void mixedBatchIsReportedCompletelyAndNothingIsWritten() {
+		start(500, 1000);
+		storedIds(4L);
+		List<StockTrade> batch = Arrays.asList(stockTrade(1), stockTrade(2), null, invalid(3), stockTrade(1),
+				stockTrade(4), stockTrade(5));
+
+		BatchReport report = pipeline.process(batch, StockTradeBatchPipelineTest::isValid, writer);
+
+		assertThat(report.getInvalidRecords()).containsExactly("stocktrade object at index 2 is empty",
+				"stocktrade object at index 3 with id 3 doesn't have the required fields");
+		assertThat(report.getDuplicateIds()).containsExactly(1L, 4L);
+		assertThat(report.getDuplicateRecords()).containsExactly(
+				"stockTrade object with id 1 is repeated in the request",
+				"stockTrade object with id 4 is already available");
+		assertThat(report.getWrittenRecords()).isZero();
+		assertThat(writtenChunks).isEmpty();
+	}
+
+	@Test
+	void newRecordsOfABatchWithOnlyDuplicatesAreWritten() {
+		start(2, 1000);
+		storedIds(2L, 5L);
+		List<StockTrade> batch = Arrays.asList(stockTrade(1), stockTrade(2), stockTrade(3), stockTrade(3),
+				stockTrade(4), stockTrade(5));
+
+		BatchReport report = pipeline.process(batch, StockTradeBatchPipelineTest::isValid, writer);
+
+		assertThat(report.hasInvalidRecords()).isFalse();
+		assertThat(report.getDuplicateIds()).containsExactly(3L, 2L, 5L);
+		assertThat(report.getWrittenRecords()).isEqualTo(3);
+		assertThat(idsOf(writtenChunks)).containsExactly(1L, 3L, 4L);
+	}
+
+	@Test
+	void largeBatchIsValidatedInParallelAndWrittenInOrder() {
+		start(7, 10);
+		storedIds();
+		List<StockTrade> batch = new ArrayList<>();
+		for (int id = 1; id <= 100; id++) {
+			batch.add(stockTrade(id));
+		}
+		Set<String> validationThreads = ConcurrentHashMap.newKeySet();
+
+		BatchReport report = pipeline.process(batch, stockTradeObj -> {
+			validationThreads.add(Thread.currentThread().getName());
+			return isValid(stockTradeObj);
+		}, writer);
+
+		assertThat(validationThreads).doesNotContain(Thread.currentThread().getName());
+		assertThat(report.getWrittenRecords()).isEqualTo(100);
+		assertThat(writtenChunks).hasSize(15);
+		assertThat(idsOf(writtenChunks)).isEqualTo(idsOf(Collections.singletonList(batch)));
+	}
+
+	@Test
+	void largeBatchWithInvalidRecordsReportsThemInOrder() {
+		start(7, 10);
+		storedIds();
+		List<StockTrade> batch = new ArrayList<>();
+		for (int id = 1; id <= 100; id++) {
+			batch.add(id % 30 == 0 ? invalid(id) : stockTrade(id));
+		}
+
+		BatchReport report = pipeline.process(batch, StockTradeBatchPipelineTest::isValid, writer);
+
+		assertThat(report.getInvalidRecords()).containsExactly(
+				"stocktrade object at index 29 with id 30 doesn't have the required fields",
+				"stocktrade object at index 59 with id 60 doesn't have the required fields",
+				"stocktrade object at index 89 with id 90 doesn't have the required fields");
+		assertThat(writtenChunks).isEmpty();
+	}
+
+	@Test
+	void failingWriterStopsTheChainAndPropagates() {
+		start(2, 1000);
+		storedIds();
+		List<StockTrade> batch = Arrays.asList(stockTrade(1), stockTrade(2), stockTrade(3), stockTrade(4),
+				stockTrade(5), stockTrade(6));
+		IllegalStateException failure = new IllegalStateException("write failed");
+
+		assertThatThrownBy(() -> pipeline.process(batch, StockTradeBatchPipelineTest::isValid, chunk -> {
+			if (chunk.get(0).getId() == 3) {
+				throw failure;
+			}
+			return writer.apply(chunk);
+		})).isSameAs(failure);
+		assertThat(idsOf(writtenChunks)).containsExactly(1L, 2L);
+	}
+
+	@Test
+	void recordsStoredConcurrentlyAreReportedAsDuplicates() {
+		start(2, 1000);
+		storedIds(2L);
+		List<StockTrade> batch = Arrays.asList(stockTrade(1), stockTrade(2), stockTrade(3), stockTrade(4),
+				stockTrade(5));
+
+		BatchReport report = pipeline.process(batch, StockTradeBatchPipelineTest::isValid, chunk -> {
+			List<StockTrade> stored = new ArrayList<>();
+			Set<Long> skipped = new HashSet<>();
+			for (StockTrade stockTradeObj : chunk) {
+				if (stockTradeObj.getId() == 3 || stockTradeObj.getId() == 5) {
+					skipped.add(stockTradeObj.getId());
+				} else {
+					stored.add(stockTradeObj);
+				}
+			}
+			writtenChunks.add(stored);
+			return skipped;
+		});
+
+		assertThat(report.getDuplicateIds()).containsExactly(2L, 3L, 5L);
+		assertThat(report.getDuplicateRecords()).containsExactly("stockTrade object with id 2 is already available",
+				"stockTrade object with id 3 is already available", "stockTrade object with id 5 is already available");
+		assertThat(report.getWrittenRecords()).isEqualTo(2);
+		assertThat(idsOf(writtenChunks)).containsExactly(1L, 4L);
+	}
+
+	private void start(int chunkSize, int parallelThreshold) {
+		batchProperties.setChunkSize(chunkSize);
+		batchProperties.setParallelThreshold(parallelThreshold);
+		batchProperties.setValidationParallelism(4);
+		batchProperties.setIoParallelism(2);
+		pipeline.start();
+	}
+
+	/**
+	 * makes the repository report the given ids as stored.
+	 */
+	@SuppressWarnings("unchecked")
+	private void storedIds(Long... ids) {
+		Set<Long> stored = new HashSet<>(Arrays.asList(ids));
+		when(stockTrdRepository.findIdsByIdIn(anyCollection())).thenAnswer(invocation -> {
+			Collection<Long> requested = invocation.getArgument(0);
+			return requested.stream().filter(stored::contains).map(StockTradeBatchPipelineTest::idOnly)
+					.collect(Collectors.toList());
+		});
+	}
+
+	private static List<Long> idsOf(List<List<StockTrade>> chunks) {
+		return chunks.stream().flatMap(List::stream).map(StockTrade::getId).collect(Collectors.toList());
+	}
+
+	private static boolean isValid(StockTrade stockTradeObj) {
+		return stockTradeObj.getSecurity() != null && stockTradeObj.getDate() != null;
+	}
+
+	private static StockTrade stockTrade(long id) {
+		StockTrade stockTradeObj = idOnly(id);
+		stockTradeObj.setSecurity("AAPL");
+		stockTradeObj.setDate(new Date(0));
+		return stockTradeObj;
+	}
+
+	private static StockTrade invalid(long id) {
+		return idOnly(id);
+	}
+
+	private static StockTrade idOnly(long id) {
+		StockTrade stockTradeObj = new StockTrade();
+		stockTradeObj.setId(id);
+		return stockTradeObj;
+	}
+
+}
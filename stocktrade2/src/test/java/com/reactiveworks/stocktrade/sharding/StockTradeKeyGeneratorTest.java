@@ -0,0 +1,119 @@
+package com.reactiveworks.stocktrade.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.reactiveworks.stocktrade.model.StockTrade;
+
+@ExtendWith(MockitoExtension.class)
+class StockTradeKeyGeneratorTest {
+
+	/** 2020-01-02T00:00:00Z */
+	private static final long JAN_2_2020 = 1577923200000L;
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+	@InjectMocks
+	private StockTradeKeyGenerator keyGenerator;
+
+	/** counters of the sequences, as stocktrade_sequences would keep them. */
+	private final Map<String, Long> counters = new HashMap<>();
+	private final Map<String, Long> lastIncrements = new HashMap<>();
+
+	@BeforeEach
+	void setUp() {
+		lenient().when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+				eq(Document.class), eq(StockTradeKeyGenerator.SEQUENCE_COLLECTION))).thenAnswer(invocation -> {
+					Query query = invocation.getArgument(0);
+					Update update = invocation.getArgument(1);
+					String sequence = query.getQueryObject().getString("_id");
+					long increment = ((Number) update.getUpdateObject().get("$inc", Document.class).get("seq"))
+							.longValue();
+					lastIncrements.put(sequence, increment);
+					long value = counters.merge(sequence, increment, Long::sum);
+					return new Document("_id", sequence).append("seq", value);
+				});
+	}
+
+	@Test
+	void assignIdsReservesOneBlockForTheRecordsWithoutId() {
+		counters.put("_stocktrade_id", 10L);
+		List<StockTrade> batch = Arrays.asList(stockTrade(0, "AAPL", 0), stockTrade(5, "AAPL", 0),
+				stockTrade(0, "AAPL", 0), stockTrade(0, "IBM", 0));
+
+		keyGenerator.assignIds(batch);
+
+		long first = StockTradeKeyGenerator.FIRST_GENERATED_ID;
+		assertThat(batch).extracting(StockTrade::getId).containsExactly(first + 10, 5L, first + 11, first + 12);
+		assertThat(lastIncrements).containsEntry("_stocktrade_id", 3L);
+		assertThat(counters).containsEntry("_stocktrade_id", 13L);
+	}
+
+	@Test
+	void firstGeneratedIdIsAboveTheIntRange() {
+		List<StockTrade> batch = Arrays.asList(stockTrade(0, "AAPL", 0));
+
+		keyGenerator.assignIds(batch);
+
+		assertThat(batch.get(0).getId()).isEqualTo(Integer.MAX_VALUE + 1L);
+	}
+
+	@Test
+	void assignIdsDoesNothingWhenEveryRecordHasAnId() {
+		keyGenerator.assignIds(Arrays.asList(stockTrade(1, "AAPL", 0), stockTrade(2, "AAPL", 0)));
+
+		verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+				any(FindAndModifyOptions.class), eq(Document.class), eq(StockTradeKeyGenerator.SEQUENCE_COLLECTION));
+	}
+
+	@Test
+	void assignKeysReservesOneBlockPerSecurityAndDay() {
+		counters.put("AAPL:20200102", 4L);
+		StockTrade keyed = stockTrade(4, "AAPL", 0);
+		keyed.setSeq(2L);
+		List<StockTrade> batch = Arrays.asList(stockTrade(1, "AAPL", 0), stockTrade(2, "IBM", 0),
+				stockTrade(3, "AAPL", 0), keyed, stockTrade(5, "AAPL", 1), stockTrade(6, "AAPL", 0));
+
+		keyGenerator.assignKeys(batch);
+
+		assertThat(batch).extracting(StockTrade::getSeq).containsExactly(5L, 1L, 6L, 2L, 1L, 7L);
+		assertThat(lastIncrements).containsOnly(entry("AAPL:20200102", 3L), entry("IBM:20200102", 1L),
+				entry("AAPL:20200103", 1L));
+	}
+
+	private static Map.Entry<String, Long> entry(String sequence, long increment) {
+		return new SimpleImmutableEntry<>(sequence, increment);
+	}
+
+	private static StockTrade stockTrade(long id, String security, int daysAfterJan2) {
+		StockTrade stockTrade = new StockTrade();
+		stockTrade.setId(id);
+		stockTrade.setSecurity(security);
+		stockTrade.setDate(new Date(JAN_2_2020 + daysAfterJan2 * 24L * 60 * 60 * 1000));
+		return stockTrade;
+	}
+
+}